@@ -0,0 +1,200 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.googlecode.jcobs.math.Real;
+
+public class CsvAggregationTest {
+
+	@Test
+	public void testGroupByString() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvAggregation aggregation = new CsvAggregation();
+		aggregation.addGroupField("setor", CsvFieldType.STRING);
+		aggregation.addAggregate(CsvAggregate.count());
+		aggregation.addAggregate(CsvAggregate.max("codigo"));
+
+		List<CsvGroup> groups = aggregation.aggregate(reader);
+		Assert.assertEquals(2, groups.size());
+		Assert.assertEquals("Produ\u00e7\u00e3o", groups.get(0).getKey(0));
+		Assert.assertEquals(3L, groups.get(0).getCount());
+		Assert.assertEquals(3L, groups.get(0).getValue(0));
+		Assert.assertEquals(new Real(11_002), groups.get(0).getReal(1));
+		Assert.assertEquals("Passadoria", groups.get(1).getKey(0));
+		Assert.assertEquals(new Real(1), groups.get(1).getReal(0));
+		Assert.assertEquals(new Real(11_003), groups.get(1).getValue(1));
+	}
+
+	@Test
+	public void testGroupByInteger() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvAggregation aggregation = new CsvAggregation();
+		aggregation.addGroupField("codigoGerente", CsvFieldType.INTEGER);
+		aggregation.addAggregate(CsvAggregate.sum("codigo"));
+		aggregation.addAggregate(CsvAggregate.min("codigo"));
+		aggregation.addAggregate(CsvAggregate.avg("codigo"));
+		aggregation.addAggregate(CsvAggregate.sum("codigoGerente"));
+
+		List<CsvGroup> groups = aggregation.aggregate(reader);
+		Assert.assertEquals(3, groups.size());
+		// The empty values have a group of their own
+		Assert.assertNull(groups.get(0).getKey(0));
+		Assert.assertEquals(new Real(11_000), groups.get(0).getValue(0));
+		Assert.assertNull(groups.get(0).getValue(3));
+		Assert.assertEquals(11_000, groups.get(1).getKey(0));
+		Assert.assertEquals(2L, groups.get(1).getCount());
+		Assert.assertEquals(new Real(22_003), groups.get(1).getValue(0));
+		Assert.assertEquals(new Real(11_001), groups.get(1).getValue(1));
+		Assert.assertEquals(new Real(22_003, 2), groups.get(1).getValue(2));
+		Assert.assertEquals(new Real(22_000), groups.get(1).getValue(3));
+		Assert.assertEquals(11_002, groups.get(2).getKey(0));
+		Assert.assertEquals(new Real(11_003), groups.get(2).getValue(0));
+	}
+
+	@Test
+	public void testGroupBySeveralFields() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvAggregation aggregation = new CsvAggregation();
+		aggregation.addGroupField(2, CsvFieldType.STRING);
+		aggregation.addGroupField("codigoGerente", CsvFieldType.LONG);
+
+		List<CsvGroup> groups = aggregation.aggregate(reader);
+		Assert.assertEquals(3, groups.size());
+		Assert.assertArrayEquals(new Object[] { "Produ\u00e7\u00e3o", null }, groups.get(0).getKey());
+		Assert.assertArrayEquals(new Object[] { "Produ\u00e7\u00e3o", 11_000L }, groups.get(1).getKey());
+		Assert.assertEquals(2L, groups.get(1).getCount());
+		Assert.assertArrayEquals(new Object[] { "Passadoria", 11_002L }, groups.get(2).getKey());
+
+		// No group fields: a single group with all the records
+		aggregation = new CsvAggregation();
+		aggregation.addAggregate(CsvAggregate.count());
+		groups = aggregation.aggregate(reader);
+		Assert.assertEquals(1, groups.size());
+		Assert.assertEquals(4L, groups.get(0).getValue(0));
+	}
+
+	@Test
+	public void testExactSums() throws IOException, ParseException {
+		StringBuilder content = new StringBuilder("Conta;Valor;Data\n");
+		Map<Integer, BigDecimal> expected = new LinkedHashMap<>();
+		for (int i = 0; i < 100_000; ++i) {
+			int conta = (i * 7) % 997;
+			String valor = (i % 3 == 0 ? "-" : "") + (i % 1000) + "." + (i % 100 < 10 ? "0" : "") + (i % 100);
+			if (i % 5 == 0) {
+				valor = valor.replace('.', ',');
+			} else if (i % 11 == 0) {
+				valor = Integer.toString(i);
+			}
+			content.append(conta).append(';').append(valor).append(";01/01/2014\n");
+			BigDecimal previous = expected.get(conta);
+			BigDecimal value = new BigDecimal(valor.replace(',', '.'));
+			expected.put(conta, previous == null ? value : previous.add(value));
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvReader reader = new CsvReader();
+			reader.readFile(file);
+			CsvAggregation aggregation = new CsvAggregation();
+			aggregation.addGroupField("conta", CsvFieldType.INTEGER);
+			aggregation.addAggregate(CsvAggregate.sum("valor"));
+			List<CsvGroup> parallel = aggregation.aggregate(reader);
+			assertSums(expected, parallel);
+
+			aggregation.setParallel(false);
+			Assert.assertEquals(parallel.toString(), aggregation.aggregate(reader).toString());
+
+			// Streaming readers aggregate the records as they are read
+			aggregation.setParallel(true);
+			try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+				bigReader.readFile(file);
+				assertSums(expected, aggregation.aggregate(bigReader));
+				Assert.assertFalse(bigReader.next());
+			}
+
+			aggregation = new CsvAggregation();
+			aggregation.addGroupField("data", CsvFieldType.UTIL_DATE);
+			aggregation.addAggregate(CsvAggregate.count());
+			List<CsvGroup> groups = aggregation.aggregate(reader);
+			Assert.assertEquals(1, groups.size());
+			Assert.assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("01/01/2014"), groups.get(0).getKey(0));
+			Assert.assertEquals(100_000L, groups.get(0).getValue(0));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testInvalidDecimal() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvAggregation aggregation = new CsvAggregation();
+		aggregation.addAggregate(CsvAggregate.sum("nome"));
+		try {
+			aggregation.aggregate(reader);
+			Assert.fail();
+		} catch (CsvFormatError e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Not a decimal value: '"));
+		}
+	}
+
+	@Test
+	public void testSumOverflow() throws IOException {
+		assertSumOverflow("9000000000000000000");
+		assertSumOverflow("90000000000000000.01");
+		assertSumOverflow("-9000000000000000000");
+	}
+
+	private static void assertSumOverflow(String valor) throws IOException {
+		File file = CsvTestFiles.createTempFile("Valor\n" + valor + "\n" + valor + "\n" + valor + "\n");
+		try {
+			CsvReader reader = new CsvReader();
+			reader.readFile(file);
+			CsvAggregation aggregation = new CsvAggregation();
+			aggregation.addAggregate(CsvAggregate.sum("valor"));
+			aggregation.setParallel(false);
+			try {
+				aggregation.aggregate(reader);
+				Assert.fail("An ArithmeticException must have been thrown.");
+			} catch (ArithmeticException e) {
+				Assert.assertEquals("Numeric overflow", e.getMessage());
+			}
+			aggregation.setParallel(true);
+			try {
+				aggregation.aggregate(reader);
+				Assert.fail("An ArithmeticException must have been thrown.");
+			} catch (ArithmeticException e) {
+				// Rethrown by the fork-join pool
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertSums(Map<Integer, BigDecimal> expected, List<CsvGroup> groups) {
+		Assert.assertEquals(expected.size(), groups.size());
+		int i = 0;
+		for (Map.Entry<Integer, BigDecimal> entry : expected.entrySet()) {
+			CsvGroup group = groups.get(i++);
+			Assert.assertEquals(entry.getKey(), group.getKey(0));
+			Assert.assertEquals(new Real(entry.getValue()), group.getReal(0));
+		}
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvBigFileReaderTest {
+
+	@Test
+	public void testReadCsvWithHeader_ByFieldName() throws IOException {
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(getColaboradoresFile());
+			Assert.assertEquals(0, reader.recordCount());
+
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+			Assert.assertEquals("Thais Nepomuceno", reader.getString("nome"));
+			Assert.assertEquals(null, reader.getInteger("codigogerente"));
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_003, reader.getInteger("codigo").intValue());
+			Assert.assertEquals("Passadoria", reader.getString("setor"));
+			Assert.assertEquals(11_002, reader.getLong("codigogerente").longValue());
+
+			Assert.assertFalse(reader.next());
+			Assert.assertFalse(reader.next());
+			Assert.assertEquals(4, reader.recordCount());
+		}
+	}
+
+	@Test
+	public void testReadCsvWithHeader_WithDelimiters_DateString() throws IOException, ParseException {
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(getFeriadosFile());
+
+			SimpleDateFormat dateFmt = new SimpleDateFormat("dd/MM/yyyy");
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(dateFmt.parse("12/06/2014"), reader.getDate(0));
+			Assert.assertEquals("Dia dos \"Namorados\"", reader.getString(1));
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(dateFmt.parse("08/07/2014"), reader.getDate("data"));
+			Assert.assertEquals("Semifinais Copa Brasil;Alemanha 7 x 1 Brasil", reader.getString("nome"));
+		}
+	}
+
+	@Test
+	public void testReadCsvWithoutHeader() throws IOException {
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.setFirstLineIsHeader(false);
+			reader.readFile(getColaboradoresFile());
+
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Codigo", reader.getString(0));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getInteger(0).intValue());
+		}
+	}
+
+	@Test
+	public void testException_WrongFragmentCount() throws IOException {
+		File file = CsvTestFiles.createTempFile("A;B\n1;2\n3\n");
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(file);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("2", reader.getString("b"));
+			try {
+				reader.next();
+				Assert.fail("A CsvFormatError must have been thrown.");
+			} catch (CsvFormatError ex) {
+				Assert.assertEquals("Record with 1 fragments. Expecting 2.", ex.getMessage());
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRead_GzipStream() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write("A;B\n1;x\n2;y\n".getBytes("UTF-8"));
+		}
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.read(new ByteArrayInputStream(compressed.toByteArray()));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("x", reader.getString("b"));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(2, reader.getIntValue("a"));
+			Assert.assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testTop() throws IOException {
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(getFeriadosFile());
+			Assert.assertTrue(reader.next());
+			// From the current record on
+			Assert.assertEquals(3, reader.top(3, "nome", CsvFieldType.STRING, false));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("V\u00e9spera de Ano Novo", reader.getString("nome"));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Semifinais Copa Brasil;Alemanha 7 x 1 Brasil", reader.getString("nome"));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("15/11/2014", reader.getString("data"));
+			Assert.assertFalse(reader.next());
+		}
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(getColaboradoresFile());
+			Assert.assertEquals(4, reader.top(5, "codigogerente", CsvFieldType.LONG, true));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getIntValue("codigo"));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_001, reader.getIntValue("codigo"));
+			Assert.assertEquals(11_000, reader.getIntValue("codigogerente"));
+		}
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+	private File getFeriadosFile() {
+		return new File(getClass().getResource("feriados.csv").getPath());
+	}
+
+}
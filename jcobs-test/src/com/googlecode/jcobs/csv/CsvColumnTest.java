@@ -0,0 +1,55 @@
+package com.googlecode.jcobs.csv;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvColumnTest {
+
+	@Test
+	public void testStringColumn_Dictionary() {
+		CsvStringColumn column = new CsvStringColumn();
+		column.add("a");
+		column.add(null);
+		column.add("b");
+		column.add("a");
+		column.trim();
+		column.add("c");
+		Assert.assertTrue(column.isDictionaryEncoded());
+		Assert.assertEquals(5, column.size());
+		Assert.assertEquals("a", column.getString(0));
+		Assert.assertTrue(column.isNull(1));
+		Assert.assertEquals("b", column.getString(2));
+		Assert.assertEquals("a", column.getString(3));
+		Assert.assertEquals("c", column.getString(4));
+	}
+
+	@Test
+	public void testStringColumn_TooManyDistinctValues() {
+		CsvStringColumn column = new CsvStringColumn();
+		column.add(null);
+		for (int i = 0; i < CsvStringColumn.MAX_DICTIONARY_SIZE + 10; ++i) {
+			column.add(String.valueOf(i));
+		}
+		Assert.assertFalse(column.isDictionaryEncoded());
+		Assert.assertTrue(column.isNull(0));
+		Assert.assertEquals("0", column.getString(1));
+		Assert.assertEquals(String.valueOf(CsvStringColumn.MAX_DICTIONARY_SIZE + 9), column.getString(column.size() - 1));
+	}
+
+	@Test
+	public void testIntegerColumn_Nulls() {
+		CsvIntegerColumn column = new CsvIntegerColumn();
+		for (int i = 0; i < 200; ++i) {
+			column.add(i % 3 == 0 ? null : String.valueOf(i));
+		}
+		column.trim();
+		for (int i = 0; i < 200; ++i) {
+			Assert.assertEquals(i % 3 == 0, column.isNull(i));
+			Assert.assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), column.getValue(i));
+		}
+		Assert.assertTrue(column.compare(0, 1) < 0);
+		Assert.assertTrue(column.compare(2, 1) > 0);
+		Assert.assertEquals(0, column.compare(0, 3));
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvDatasetTest {
+
+	@Test
+	public void testIndependentCursors() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setFieldType("codigogerente", CsvFieldType.LONG);
+		reader.readFile(getColaboradoresFile());
+		CsvDataset dataset = reader.toDataset();
+		Assert.assertSame(dataset, reader.toDataset());
+		Assert.assertEquals(4, dataset.recordCount());
+		Assert.assertEquals(4, dataset.fieldCount());
+
+		CsvCursor first = dataset.cursor();
+		CsvCursor second = dataset.cursor();
+		Assert.assertEquals(-1, first.getIndex());
+		Assert.assertTrue(first.next());
+		second.moveTo(3);
+		Assert.assertEquals(11_000, first.getIntValue("codigo"));
+		Assert.assertTrue(first.isNull("codigoGerente"));
+		Assert.assertEquals(11_003, second.getInteger(0).intValue());
+		Assert.assertEquals(11_002L, second.getLongValue("codigoGerente"));
+		Assert.assertEquals("Passadoria", second.getString("setor"));
+		Assert.assertFalse(second.next());
+
+		CsvRecord record = first.getRecord();
+		Assert.assertTrue(first.next());
+		Assert.assertEquals("Thais Nepomuceno", record.getString("nome"));
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", first.getString("nome"));
+
+		// The reader keeps its own cursor
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, reader.getIntValue("codigo"));
+	}
+
+	@Test
+	public void testLookup() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvDataset dataset = reader.toDataset();
+		CsvIndex index = dataset.createIndex("codigogerente", CsvFieldType.INTEGER);
+
+		CsvCursor cursor = dataset.cursor();
+		Assert.assertTrue(cursor.lookup(index, 11_000));
+		Assert.assertEquals(1, cursor.getIndex());
+		Assert.assertFalse(cursor.lookup(index, 11_003));
+		Assert.assertEquals(1, cursor.getIndex());
+
+		CsvReader other = new CsvReader();
+		other.readFile(getColaboradoresFile());
+		try {
+			cursor.lookup(other.createIndex("codigo", CsvFieldType.INTEGER), 11_000);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("The index was created by another dataset.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testRecordsCantBeChanged() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.toDataset();
+		try {
+			reader.readFile(getColaboradoresFile());
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("The records are shared by a dataset, they can't be changed.", e.getMessage());
+		}
+		Assert.assertEquals(4, reader.recordCount());
+		// Sorting doesn't change the records, just the order of the cursor
+		reader.sort("nome", CsvFieldType.STRING, true);
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", reader.getString("nome"));
+		CsvCursor cursor = reader.toDataset().cursor();
+		Assert.assertTrue(cursor.next());
+		Assert.assertEquals("Thais Nepomuceno", cursor.getString("nome"));
+		Assert.assertTrue(reader.spliterator().hasCharacteristics(Spliterator.IMMUTABLE));
+
+		try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+			bigReader.readFile(getColaboradoresFile());
+			bigReader.toDataset();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testSortedCursors() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvDataset dataset = reader.toDataset();
+		CsvCursor byNome = dataset.cursor();
+		CsvCursor byGerente = dataset.cursor();
+		byNome.sort("nome", CsvFieldType.STRING, true);
+		byGerente.sort(new CsvSortField("codigoGerente", CsvFieldType.INTEGER, false), new CsvSortField(0, CsvFieldType.INTEGER, true));
+
+		assertCodigos(byNome, 11_001, 11_002, 11_003, 11_000);
+		assertCodigos(byGerente, 11_003, 11_001, 11_002, 11_000);
+		byNome.clearSort();
+		assertCodigos(byNome, 11_000, 11_001, 11_002, 11_003);
+
+		// Goes on in the order from the record found
+		CsvIndex index = dataset.createIndex("codigo", CsvFieldType.INTEGER);
+		byNome.sort("nome", CsvFieldType.STRING, true);
+		Assert.assertTrue(byNome.lookup(index, 11_002));
+		assertCodigos(byNome, 11_003, 11_000);
+		byNome.moveTo(0);
+		Assert.assertFalse(byNome.next());
+	}
+
+	@Test
+	public void testNoCurrentRecord() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvCursor cursor = reader.toDataset().cursor();
+		try {
+			cursor.getString("nome");
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("There's no current record.", e.getMessage());
+		}
+		try {
+			cursor.moveTo(4);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("Invalid record index: 4. Max is 3.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testConcurrentCursors() throws Exception {
+		StringBuilder content = new StringBuilder("Codigo;Nome\n");
+		for (int i = 0; i < 50_000; ++i) {
+			content.append(i).append(";Nome ").append(i).append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			CsvReader reader = new CsvReader();
+			reader.setFieldType("codigo", CsvFieldType.INTEGER);
+			reader.readFile(file);
+			CsvDataset dataset = reader.toDataset();
+			CsvIndex index = dataset.createIndex("nome", CsvFieldType.STRING);
+			List<Future<Long>> results = new ArrayList<>();
+			for (int t = 0; t < 8; ++t) {
+				int step = t + 1;
+				results.add(executor.submit(() -> {
+					CsvCursor cursor = dataset.cursor();
+					long sum = 0;
+					while (cursor.next()) {
+						sum += cursor.getIntValue(0);
+					}
+					for (int i = 0; i < 50_000; i += step) {
+						Assert.assertTrue(cursor.lookup(index, "Nome " + i));
+						Assert.assertEquals(i, cursor.getIntValue("codigo"));
+					}
+					return sum;
+				}));
+			}
+			for (Future<Long> result : results) {
+				Assert.assertEquals(49_999L * 50_000 / 2, result.get().longValue());
+			}
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	private static void assertCodigos(CsvCursor cursor, int... codigos) {
+		for (int codigo : codigos) {
+			Assert.assertTrue(cursor.next());
+			Assert.assertEquals(codigo, cursor.getIntValue("codigo"));
+		}
+		Assert.assertFalse(cursor.next());
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.googlecode.jcobs.csv;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvDateParserTest {
+
+	private static final TimeZone SAO_PAULO = TimeZone.getTimeZone("America/Sao_Paulo");
+
+	@Test
+	public void testParse_SameAsSimpleDateFormat() throws ParseException {
+		assertSameAsSimpleDateFormat("dd/MM/yyyy", "01/02/2010", "1/2/2010", "31/12/1999", "29/02/2012", "29/02/2013", "32/01/2014", "00/00/2014",
+				"15/13/2014", "01/02/2010 extra", "01/02/20101", "15/03/1500", "04/10/1582", "01/01/0001", " 01/02/2010", "01/ 02/2010", "01/-2/2010",
+				"01/02/", "01-02-2010", "", "x", "999999999/01/2000", "1234567890/01/2000");
+		assertSameAsSimpleDateFormat("yyyyMMdd", "20100201", "2010021", "201002011", "20101301");
+		assertSameAsSimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", "2014-06-12 13:45:10.250", "2014-06-12 25:61:61.1001", "2014-06-12 13:45");
+		assertSameAsSimpleDateFormat("dd/MM/yyyy HH'h'mm", "12/06/2014 13h45", "12/06/2014 13:45");
+		// Not compiled
+		assertSameAsSimpleDateFormat("dd/MM/yy", "01/02/10", "01/02/2010", "01/02/99");
+		assertSameAsSimpleDateFormat("dd MMM yyyy", "01 Feb 2010", "01 02 2010");
+		Assert.assertFalse(new CsvDateParser("dd'E'MM/yyyy").isCompiled());
+		Assert.assertTrue(new CsvDateParser("dd/MM/yyyy' as of 'HH:mm").isCompiled());
+	}
+
+	@Test
+	public void testParse_DaylightSavingTime() throws ParseException {
+		// Daylight saving time started at midnight of 16/10/2016, and ended
+		// at midnight of 19/02/2017 (back to 23:00 of 18/02/2017)
+		assertSameAsSimpleDateFormat(SAO_PAULO, "dd/MM/yyyy", "15/10/2016", "16/10/2016", "17/10/2016", "18/02/2017", "19/02/2017",
+				"47/09/2016");
+		assertSameAsSimpleDateFormat(SAO_PAULO, "dd/MM/yyyy HH:mm", "15/10/2016 23:59", "16/10/2016 00:00", "16/10/2016 00:30",
+				"16/10/2016 01:00", "16/10/2016 12:00", "18/02/2017 22:59", "18/02/2017 23:00", "18/02/2017 23:30", "19/02/2017 00:00",
+				"15/10/2016 24:30", "15/10/2016 48:00");
+	}
+
+	@Test
+	public void testParse_Cached() throws ParseException {
+		CsvDateParser parser = new CsvDateParser("dd/MM/yyyy");
+		Date date = parser.parse("01/02/2010");
+		Assert.assertEquals(date, parser.parse("01/02/2010"));
+		Assert.assertEquals(date.getTime(), parser.parseMillis(new String("01/02/2010")));
+		try {
+			parser.parse("01/02/");
+			Assert.fail();
+		} catch (ParseException e) {
+			// Errors are not cached
+		}
+		try {
+			parser.parse("01/02/");
+			Assert.fail();
+		} catch (ParseException e) {
+			Assert.assertEquals(6, e.getErrorOffset());
+		}
+	}
+
+	@Test
+	public void testParse_Threads() throws Exception {
+		final CsvDateParser parser = new CsvDateParser("dd/MM/yyyy HH:mm");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 4; ++t) {
+				final int seed = t;
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws ParseException {
+						SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+						for (int i = 0; i < 20_000; ++i) {
+							int n = i * 7 + seed;
+							String text = String.format("%02d/%02d/%d %02d:%02d", 1 + n % 28, 1 + n % 12, 1990 + n % 40, n % 24, n % 60);
+							if (format.parse(text).getTime() != parser.parseMillis(text)
+									|| !parser.format(new Date(parser.parseMillis(text))).equals(text)) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				Assert.assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReader_DateFormat() throws ParseException {
+		CsvReader reader = new CsvReader();
+		reader.setDateFormat("yyyy-MM-dd");
+		Date date = (Date) reader.convertValue("2014-06-12", CsvFieldType.UTIL_DATE);
+		Assert.assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2014-06-12"), date);
+		Assert.assertEquals("2014-06-12", reader.formatValue(date, CsvFieldType.UTIL_DATE));
+		try {
+			reader.convertValue("12/06/2014", CsvFieldType.UTIL_DATE);
+			Assert.fail();
+		} catch (CsvFormatError e) {
+			Assert.assertTrue(e.getCause() instanceof ParseException);
+		}
+	}
+
+	private static void assertSameAsSimpleDateFormat(String pattern, String... texts) throws ParseException {
+		assertSameAsSimpleDateFormat(TimeZone.getDefault(), pattern, texts);
+	}
+
+	private static void assertSameAsSimpleDateFormat(TimeZone timeZone, String pattern, String... texts) throws ParseException {
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		format.setTimeZone(timeZone);
+		CsvDateParser parser = new CsvDateParser(pattern, timeZone);
+		// Twice, the second time from the cache
+		for (int i = 0; i < 2; ++i) {
+			for (String text : texts) {
+				Date expected;
+				try {
+					expected = format.parse(text);
+				} catch (ParseException e) {
+					try {
+						parser.parse(text);
+						Assert.fail(pattern + ": " + text);
+					} catch (ParseException e2) {
+						Assert.assertEquals(e.getErrorOffset(), e2.getErrorOffset());
+					}
+					continue;
+				}
+				Assert.assertEquals(pattern + ": " + text, expected, parser.parse(text));
+			}
+		}
+	}
+
+}
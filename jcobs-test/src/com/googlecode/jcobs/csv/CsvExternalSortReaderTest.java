@@ -0,0 +1,147 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvExternalSortReaderTest {
+
+	@Test
+	public void testSort_InMemory() throws IOException {
+		try (CsvExternalSortReader reader = new CsvExternalSortReader()) {
+			reader.setSortField("codigogerente", CsvFieldType.INTEGER, false);
+			reader.readFile(getColaboradoresFile());
+			Assert.assertEquals(4, reader.recordCount());
+			assertCodigos(reader, 11_003, 11_001, 11_002, 11_000);
+		}
+	}
+
+	@Test
+	public void testSort_SpillingRuns() throws IOException {
+		File file = createFile(1000);
+		File output = File.createTempFile("jcobs", ".csv");
+		try (CsvExternalSortReader reader = new CsvExternalSortReader()) {
+			reader.setMemoryBudget(2000);
+			reader.setSortField("grupo", CsvFieldType.INTEGER, true);
+			reader.readFile(file);
+			Assert.assertEquals(1000, reader.recordCount());
+
+			CsvSortableReader expected = new CsvSortableReader();
+			expected.readFile(file);
+			expected.sort("grupo", CsvFieldType.INTEGER, true);
+			while (expected.next()) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(expected.getString("codigo"), reader.getString("codigo"));
+				Assert.assertEquals(expected.getInteger("grupo"), reader.getInteger("grupo"));
+				Assert.assertEquals(expected.getString("nome"), reader.getString("nome"));
+			}
+			Assert.assertFalse(reader.next());
+
+			reader.readFile(file);
+			reader.writeFile(output);
+			CsvReader written = new CsvReader();
+			written.readFile(output);
+			expected.readFile(file);
+			expected.sort("grupo", CsvFieldType.INTEGER, true);
+			Assert.assertEquals(1000, written.recordCount());
+			while (expected.next()) {
+				Assert.assertTrue(written.next());
+				Assert.assertEquals(expected.getString("codigo"), written.getString("codigo"));
+				Assert.assertEquals(expected.getString("nome"), written.getString("nome"));
+			}
+		} finally {
+			file.delete();
+			output.delete();
+		}
+	}
+
+	@Test
+	public void testSort_MergePasses() throws IOException {
+		File file = createFile(1000);
+		File tempDirectory = Files.createTempDirectory("jcobs").toFile();
+		try (CsvExternalSortReader reader = new CsvExternalSortReader()) {
+			// Over a hundred runs, merged 3 at a time in several passes
+			reader.setMemoryBudget(2000);
+			reader.setMaxMergeRuns(3);
+			reader.setTempDirectory(tempDirectory);
+			reader.setSortField("grupo", CsvFieldType.INTEGER, false);
+			reader.readFile(file);
+			Assert.assertTrue(tempDirectory.list().length <= 3);
+			Assert.assertEquals(1000, reader.recordCount());
+
+			CsvSortableReader expected = new CsvSortableReader();
+			expected.readFile(file);
+			expected.sort("grupo", CsvFieldType.INTEGER, false);
+			while (expected.next()) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(expected.getString("codigo"), reader.getString("codigo"));
+				Assert.assertEquals(expected.getString("nome"), reader.getString("nome"));
+			}
+			Assert.assertFalse(reader.next());
+			Assert.assertEquals(0, tempDirectory.list().length);
+		} finally {
+			file.delete();
+			tempDirectory.delete();
+		}
+	}
+
+	@Test
+	public void testWriteFile_Charset() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Nome\n");
+		for (int i = 0; i < 200; ++i) {
+			content.append((i * 7919) % 200).append(";Produ\u00e7\u00e3o ").append(i).append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString(), StandardCharsets.UTF_8);
+		File output = File.createTempFile("jcobs", ".csv");
+		try (CsvExternalSortReader reader = new CsvExternalSortReader()) {
+			// Spills runs, which keep the values in their own charset
+			reader.setMemoryBudget(2000);
+			reader.setCharset(StandardCharsets.UTF_8);
+			reader.setSortField("codigo", CsvFieldType.INTEGER, true);
+			reader.readFile(file);
+			reader.writeFile(output);
+
+			CsvReader written = new CsvReader();
+			written.setCharset(StandardCharsets.UTF_8);
+			written.readFile(output);
+			Assert.assertEquals(200, written.recordCount());
+			for (int i = 0; i < 200; ++i) {
+				Assert.assertTrue(written.next());
+				Assert.assertEquals(i, written.getIntValue("codigo"));
+				Assert.assertTrue(written.getString("nome"), written.getString("nome").startsWith("Produ\u00e7\u00e3o "));
+			}
+		} finally {
+			file.delete();
+			output.delete();
+		}
+	}
+
+	private static File createFile(int recordCount) throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Grupo;Nome\n");
+		for (int i = 0; i < recordCount; ++i) {
+			content.append(i).append(';');
+			if (i % 10 != 0) {
+				content.append((i * 7919) % 13);
+			}
+			content.append(";\"Nome \"\"").append(i).append("\"\";x\"\n");
+		}
+		return CsvTestFiles.createTempFile(content.toString());
+	}
+
+	private static void assertCodigos(CsvReader reader, int... codigos) {
+		for (int codigo : codigos) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(codigo, reader.getInteger("codigo").intValue());
+		}
+		Assert.assertFalse(reader.next());
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvIndexTest {
+
+	@Test
+	public void testIntegerIndex_Lookup() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvIndex index = reader.createIndex("codigo", CsvFieldType.INTEGER);
+
+		Assert.assertTrue(reader.lookup(index, 11_003));
+		Assert.assertEquals("Ang\u00e9lica Augusta Linhares do Monte", reader.getString("nome"));
+		Assert.assertFalse(reader.next());
+
+		Assert.assertTrue(reader.lookup(index, 11_001L));
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", reader.getString("nome"));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_002, reader.getInteger("codigo").intValue());
+
+		Assert.assertFalse(reader.lookup(index, 12_000));
+		Assert.assertEquals(11_002, reader.getInteger("codigo").intValue());
+		Assert.assertEquals(0, index.find("11000"));
+		Assert.assertEquals(-1, index.find(-11_000));
+	}
+
+	@Test
+	public void testIntegerIndex_NonUniqueKeys() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setColumnar(true);
+		reader.setFieldType("codigogerente", CsvFieldType.INTEGER);
+		reader.readFile(getColaboradoresFile());
+		CsvIndex index = reader.createIndex("codigogerente", CsvFieldType.INTEGER);
+
+		Assert.assertArrayEquals(new int[] { 1, 2 }, index.findAll(11_000));
+		Assert.assertArrayEquals(new int[] { 3 }, index.findAll(11_002));
+		Assert.assertArrayEquals(new int[] { 0 }, index.findAll((Object) null));
+		Assert.assertArrayEquals(new int[0], index.findAll(11_001));
+		Assert.assertEquals(2, index.findNext(1));
+		Assert.assertEquals(-1, index.findNext(2));
+
+		reader.moveTo(2);
+		Assert.assertEquals("Amanda C. Moreira", reader.getString("nome"));
+	}
+
+	@Test
+	public void testLongIndex_ManyRecords() throws IOException {
+		StringBuilder content = new StringBuilder("Id;Grupo\n");
+		for (int i = 0; i < 10_000; ++i) {
+			content.append(i * 7_919L * 1_000_003L).append(';').append(i % 10).append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvReader reader = new CsvReader();
+			reader.readFile(file);
+			CsvIndex ids = reader.createIndex("id", CsvFieldType.LONG);
+			CsvIndex grupos = reader.createIndex("grupo", CsvFieldType.INTEGER);
+			for (int i = 0; i < 10_000; ++i) {
+				Assert.assertEquals(i, ids.find(i * 7_919L * 1_000_003L));
+			}
+			int[] grupo7 = grupos.findAll(7);
+			Assert.assertEquals(1_000, grupo7.length);
+			for (int i = 0; i < grupo7.length; ++i) {
+				Assert.assertEquals(i * 10 + 7, grupo7[i]);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDateIndex() throws IOException, ParseException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getFeriadosFile());
+		CsvIndex index = reader.createIndex("data", CsvFieldType.UTIL_DATE);
+		SimpleDateFormat dateFmt = new SimpleDateFormat("dd/MM/yyyy");
+
+		Assert.assertTrue(reader.lookup(index, dateFmt.parse("12/06/2014")));
+		Assert.assertEquals("Dia dos \"Namorados\"", reader.getString("nome"));
+		Assert.assertEquals(1, index.find("12/06/2014"));
+	}
+
+	@Test
+	public void testStringIndex_MultipleFields() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvIndex bySetor = reader.createIndex("setor", CsvFieldType.STRING);
+		CsvIndex bySetorAndGerente = reader.createIndex("setor", "codigogerente");
+
+		Assert.assertArrayEquals(new int[] { 0, 1, 2 }, bySetor.findAll("Produ\u00e7\u00e3o"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, bySetorAndGerente.findAll("Produ\u00e7\u00e3o", 11_000));
+		Assert.assertArrayEquals(new int[] { 0 }, bySetorAndGerente.findAll("Produ\u00e7\u00e3o", null));
+		Assert.assertTrue(reader.lookup(bySetorAndGerente, "Passadoria", "11002"));
+		Assert.assertEquals(11_003, reader.getInteger("codigo").intValue());
+		try {
+			bySetorAndGerente.find("Passadoria");
+			Assert.fail("An IllegalArgumentException must have been thrown.");
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid key: [Passadoria]. Expecting 2 values.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testIndex_InvalidatedByReload() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		CsvIndex index = reader.createIndex("codigo", CsvFieldType.INTEGER);
+		// Sorting doesn't move the records
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		Assert.assertEquals(0, index.find(11_000));
+		Assert.assertTrue(reader.lookup(index, 11_001));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+
+		reader.readFile(getColaboradoresFile());
+		try {
+			index.find(11_000);
+			Assert.fail("An IllegalStateException must have been thrown.");
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals("The index is out of date: the records were reloaded after it was created.", ex.getMessage());
+		}
+		index = reader.createIndex("codigo", CsvFieldType.INTEGER);
+		Assert.assertEquals(0, index.find(11_000));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIndex_StreamingReader() throws IOException {
+		try (CsvBigFileReader reader = new CsvBigFileReader()) {
+			reader.readFile(getColaboradoresFile());
+			reader.createIndex("codigo", CsvFieldType.INTEGER);
+		}
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+	private File getFeriadosFile() {
+		return new File(getClass().getResource("feriados.csv").getPath());
+	}
+
+}
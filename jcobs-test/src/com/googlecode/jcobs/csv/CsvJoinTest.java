@@ -0,0 +1,121 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvJoinTest {
+
+	@Test
+	public void testHashJoin() throws IOException {
+		CsvReader colaboradores = new CsvReader();
+		colaboradores.readFile(getColaboradoresFile());
+		CsvReader gerentes = new CsvReader();
+		gerentes.readFile(getColaboradoresFile());
+		CsvJoin join = new CsvJoin(colaboradores, "codigoGerente", gerentes, "codigo", CsvFieldType.INTEGER);
+
+		List<CsvJoinedRecord> records = join.hashJoin().collect(Collectors.toList());
+		Assert.assertEquals(3, records.size());
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", records.get(0).getLeft().getString("nome"));
+		Assert.assertEquals("Thais Nepomuceno", records.get(0).getRight().getString("nome"));
+		Assert.assertEquals(11_002, records.get(1).getLeft().getIntValue("codigo"));
+		Assert.assertEquals(11_000, records.get(1).getRight().getIntValue("codigo"));
+		Assert.assertEquals(11_003, records.get(2).getLeft().getIntValue("codigo"));
+		Assert.assertEquals(11_002, records.get(2).getRight().getIntValue("codigo"));
+
+		// The left reader may read its records in sequence
+		try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+			bigReader.readFile(getColaboradoresFile());
+			join = new CsvJoin(bigReader, 3, gerentes, 0, CsvFieldType.STRING);
+			Assert.assertEquals(Arrays.asList("11001-11000", "11002-11000", "11003-11002"), toStrings(join.stream()));
+			Assert.assertFalse(bigReader.next());
+		}
+	}
+
+	@Test
+	public void testMergeJoin() throws IOException {
+		CsvSortableReader colaboradores = new CsvSortableReader();
+		colaboradores.readFile(getColaboradoresFile());
+		CsvReader gerentes = new CsvReader();
+		gerentes.readFile(getColaboradoresFile());
+		CsvJoin join = new CsvJoin(colaboradores, "codigoGerente", gerentes, "codigo", CsvFieldType.LONG);
+		Assert.assertEquals(Arrays.asList("11001-11000", "11002-11000", "11003-11002"), toStrings(join.mergeJoin()));
+
+		// In the order of the key, whatever the sort of the readers
+		colaboradores.sort("nome", CsvFieldType.STRING, false);
+		join = new CsvJoin(gerentes, "codigo", colaboradores, "codigoGerente", CsvFieldType.LONG);
+		Assert.assertEquals(Arrays.asList("11000-11001", "11000-11002", "11002-11003"), toStrings(join.mergeJoin()));
+
+		try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+			bigReader.readFile(getColaboradoresFile());
+			new CsvJoin(bigReader, 3, gerentes, 0, CsvFieldType.STRING).mergeJoin();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			Assert.assertEquals("The records are not kept in memory, they can only be read in sequence.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testHashAndMergeJoinsMatch() throws IOException {
+		StringBuilder leftContent = new StringBuilder("Codigo;Chave\n");
+		for (int i = 0; i < 20_000; ++i) {
+			leftContent.append(i).append(';').append(i % 7 == 0 ? "" : Integer.toString((i * 31) % 5_000)).append('\n');
+		}
+		StringBuilder rightContent = new StringBuilder("Chave;Codigo\n");
+		for (int i = 0; i < 6_000; ++i) {
+			rightContent.append((i * 17) % 3_000 * 2).append(';').append(i).append('\n');
+		}
+		File leftFile = CsvTestFiles.createTempFile(leftContent.toString());
+		File rightFile = CsvTestFiles.createTempFile(rightContent.toString());
+		try {
+			CsvReader left = new CsvReader();
+			left.readFile(leftFile);
+			CsvReader right = new CsvReader();
+			right.setFieldType("chave", CsvFieldType.INTEGER);
+			right.readFile(rightFile);
+			CsvJoin join = new CsvJoin(left, "chave", right, "chave", CsvFieldType.INTEGER);
+
+			List<String> hash = toStrings(join.hashJoin());
+			List<String> merge = toStrings(join.mergeJoin());
+			Assert.assertEquals(expectedCount(left, right), hash.size());
+			Assert.assertEquals(hash.stream().sorted().collect(Collectors.toList()), merge.stream().sorted()
+					.collect(Collectors.toList()));
+			Assert.assertEquals(hash, toStrings(join.hashJoin().parallel()));
+
+			join.setMaxHashJoinSize(1_000);
+			Assert.assertEquals(merge, toStrings(join.stream()));
+			join.setMaxHashJoinSize(10_000);
+			Assert.assertEquals(hash, toStrings(join.stream()));
+		} finally {
+			leftFile.delete();
+			rightFile.delete();
+		}
+	}
+
+	private static long expectedCount(CsvReader left, CsvReader right) {
+		long count = 0;
+		CsvIndex index = right.createIndex("chave", CsvFieldType.INTEGER);
+		left.moveTo(0);
+		do {
+			if (!left.isNull("chave")) {
+				count += index.findAll(left.getIntValue("chave")).length;
+			}
+		} while (left.next());
+		return count;
+	}
+
+	private static List<String> toStrings(Stream<CsvJoinedRecord> records) {
+		return records.map(r -> r.getLeft().getString(0) + "-" + r.getRight().getString(0)).collect(Collectors.toList());
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+}
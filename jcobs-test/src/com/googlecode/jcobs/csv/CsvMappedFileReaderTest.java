@@ -0,0 +1,208 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvMappedFileReaderTest {
+
+	@Test
+	public void testReadCsvWithHeader_ByFieldName() throws IOException {
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.readFile(getColaboradoresFile());
+
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+			Assert.assertEquals("Thais Nepomuceno", reader.getString("nome"));
+			Assert.assertEquals("Produ\u00e7\u00e3o", reader.getString("setor"));
+			Assert.assertEquals(null, reader.getInteger("codigogerente"));
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Ang\u00e9lica Augusta Linhares do Monte", reader.getString("nome"));
+			Assert.assertEquals(11_002, reader.getInteger("codigogerente").intValue());
+
+			Assert.assertFalse(reader.next());
+			Assert.assertEquals(4, reader.recordCount());
+		}
+	}
+
+	@Test
+	public void testReadCsvWithHeader_WithDelimiters_DateString() throws IOException, ParseException {
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.readFile(getFeriadosFile());
+
+			SimpleDateFormat dateFmt = new SimpleDateFormat("dd/MM/yyyy");
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(dateFmt.parse("12/06/2014"), reader.getDate("data"));
+			Assert.assertEquals("Dia dos \"Namorados\"", reader.getString("nome"));
+
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Semifinais Copa Brasil;Alemanha 7 x 1 Brasil", reader.getString(1));
+		}
+	}
+
+	@Test
+	public void testPrimitiveValues() throws IOException, ParseException {
+		File file = CsvTestFiles.createTempFile("A;B;C\n1;-42;\"7\"\n+3;;2147483648\n", StandardCharsets.UTF_8);
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.readFile(file);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(1, reader.getIntValue("a"));
+			Assert.assertEquals(-42L, reader.getLongValue(1));
+			Assert.assertEquals(7, reader.getIntValue("c"));
+			Assert.assertFalse(reader.isNull(1));
+
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(3, reader.getIntValue(0));
+			Assert.assertTrue(reader.isNull("b"));
+			Assert.assertEquals(0L, reader.getLongValue("b"));
+			Assert.assertEquals(2_147_483_648L, reader.getLongValue("c"));
+			try {
+				reader.getIntValue("c");
+				Assert.fail();
+			} catch (NumberFormatException e) {
+				Assert.assertEquals("For input string: \"2147483648\"", e.getMessage());
+			}
+			Assert.assertFalse(reader.next());
+		} finally {
+			file.delete();
+		}
+
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.readFile(getFeriadosFile());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("01/01/2014").getTime(), reader.getDateMillis("data"));
+		}
+	}
+
+	@Test
+	public void testLineTerminators_AndWindowRemapping() throws IOException {
+		File file = CsvTestFiles.createTempFile("A;B\r\n1;\"x;y\"\r2;\n\n3;\"\"\"q\"\"\"\n4;last", StandardCharsets.UTF_8);
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.setMappingSize(16);
+			reader.setFirstLineIsHeader(false);
+			reader.readFile(file);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("A", reader.getString(0));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("x;y", reader.getString(1));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(2, reader.getInteger(0).intValue());
+			Assert.assertTrue(reader.isNull(1));
+			try {
+				reader.next();
+				Assert.fail("A CsvFormatError must have been thrown.");
+			} catch (CsvFormatError ex) {
+				Assert.assertEquals("Record with 1 fragments. Expecting 2.", ex.getMessage());
+			}
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("\"q\"", reader.getString(1));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("last", reader.getString(1));
+			Assert.assertFalse(reader.next());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCharset() throws IOException {
+		File file = CsvTestFiles.createTempFile("Nome\nA\u00e7\u00e3o\n", StandardCharsets.UTF_8);
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.setCharset(StandardCharsets.UTF_8);
+			reader.readFile(file);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("A\u00e7\u00e3o", reader.getString("nome"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testParallelStream() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Grupo\n");
+		for (int i = 0; i < 100_000; ++i) {
+			content.append(i).append(';').append(i % 7).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			reader.setMinSplitSize(4096);
+			reader.readFile(file);
+			// The records already read are not streamed
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(99_999L * 100_000 / 2 - 1, reader.parallelStream().mapToLong(r -> r.getLongValue("codigo")).sum());
+			Assert.assertFalse(reader.next());
+
+			reader.readFile(file);
+			Spliterator<CsvRecord> spliterator = reader.spliterator();
+			Spliterator<CsvRecord> prefix = spliterator.trySplit();
+			Assert.assertNotNull(prefix);
+			Assert.assertFalse(reader.next());
+			// The ranges start at lines and keep the order of the file
+			List<CsvRecord> records = StreamSupport.stream(prefix, false).collect(Collectors.toList());
+			records.addAll(StreamSupport.stream(spliterator, true).collect(Collectors.toList()));
+			Assert.assertEquals(100_000, records.size());
+			for (int i = 0; i < records.size(); ++i) {
+				Assert.assertEquals(i, records.get(i).getIntValue("codigo"));
+			}
+			Assert.assertEquals(-1, records.get(0).getIndex());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRead_Stream() throws IOException {
+		final boolean[] closed = new boolean[1];
+		InputStream in = new ByteArrayInputStream("A;B\n1;2\n".getBytes(StandardCharsets.US_ASCII)) {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		try (CsvMappedFileReader reader = new CsvMappedFileReader()) {
+			try {
+				reader.read(in);
+				Assert.fail("An IllegalArgumentException must have been thrown.");
+			} catch (IllegalArgumentException ex) {
+				Assert.assertEquals("Only files can be mapped into memory.", ex.getMessage());
+			}
+			try {
+				reader.read(Channels.newChannel(in));
+				Assert.fail("An IllegalArgumentException must have been thrown.");
+			} catch (IllegalArgumentException ex) {
+				Assert.assertEquals("Only files can be mapped into memory.", ex.getMessage());
+			}
+		}
+		// The caller can still read the stream elsewhere
+		Assert.assertFalse(closed[0]);
+		Assert.assertEquals('A', in.read());
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+	private File getFeriadosFile() {
+		return new File(getClass().getResource("feriados.csv").getPath());
+	}
+
+}
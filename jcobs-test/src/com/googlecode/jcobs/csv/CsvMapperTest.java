@@ -0,0 +1,171 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class CsvMapperTest {
+
+	@Test
+	public void testMap_Fields() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		List<Colaborador> colaboradores = reader.mapper(Colaborador.class).mapAll();
+		Assert.assertEquals(4, colaboradores.size());
+
+		Colaborador colaborador = colaboradores.get(0);
+		Assert.assertEquals(11_000, colaborador.codigo);
+		Assert.assertEquals("Thais Nepomuceno", colaborador.nome);
+		Assert.assertEquals("Produ\u00e7\u00e3o", colaborador.setor);
+		Assert.assertNull(colaborador.codigoGerente);
+		Assert.assertEquals("unmapped", colaborador.apelido);
+
+		colaborador = colaboradores.get(3);
+		Assert.assertEquals(11_003, colaborador.codigo);
+		Assert.assertEquals(11_002L, colaborador.codigoGerente.longValue());
+		Assert.assertFalse(reader.next());
+	}
+
+	@Test
+	public void testMap_Iterator() throws IOException, ParseException {
+		CsvReader reader = new CsvReader();
+		reader.setColumnar(true);
+		reader.setFieldType("data", CsvFieldType.UTIL_DATE);
+		reader.readFile(getFeriadosFile());
+		Assert.assertTrue(reader.next());
+
+		CsvMapper<Feriado> mapper = reader.mapper(Feriado.class);
+		Assert.assertEquals("Confraterniza\u00e7\u00e3o Internacional", mapper.map().nome);
+		Iterator<Feriado> iterator = mapper.iterator();
+		Assert.assertTrue(iterator.hasNext());
+		Assert.assertTrue(iterator.hasNext());
+		Feriado feriado = iterator.next();
+		Assert.assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("12/06/2014"), feriado.data);
+		Assert.assertEquals("Dia dos \"Namorados\"", feriado.nome);
+		Assert.assertEquals(1, reader.currentIndex);
+	}
+
+	@Test
+	public void testMap_Record() throws Exception {
+		// Records can't be declared in the sources, which still run on Java 8,
+		// so one is compiled when the running Java has them
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeTrue(hasRecords() && compiler != null);
+		File dir = Files.createTempDirectory("jcobs").toFile();
+		File source = new File(dir, "ColaboradorRecord.java");
+		File compiled = new File(dir, "ColaboradorRecord.class");
+		try {
+			Files.write(source.toPath(), "public record ColaboradorRecord(int codigo, String nome, Long codigoGerente) {}"
+					.getBytes(StandardCharsets.US_ASCII));
+			Assert.assertEquals(0, compiler.run(null, null, null, source.getPath()));
+			try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() })) {
+				Class<?> type = loader.loadClass("ColaboradorRecord");
+				CsvReader reader = new CsvReader();
+				reader.readFile(getColaboradoresFile());
+				List<?> colaboradores = reader.mapper(type).mapAll();
+				Assert.assertEquals(4, colaboradores.size());
+
+				Object colaborador = colaboradores.get(0);
+				Assert.assertEquals(11_000, type.getMethod("codigo").invoke(colaborador));
+				Assert.assertEquals("Thais Nepomuceno", type.getMethod("nome").invoke(colaborador));
+				Assert.assertNull(type.getMethod("codigoGerente").invoke(colaborador));
+				colaborador = colaboradores.get(3);
+				Assert.assertEquals(11_002L, type.getMethod("codigoGerente").invoke(colaborador));
+			}
+		} finally {
+			compiled.delete();
+			source.delete();
+			dir.delete();
+		}
+	}
+
+	private static boolean hasRecords() {
+		try {
+			Class.class.getMethod("isRecord");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testMap_NotSupported() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		try {
+			reader.mapper(Invalid.class);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("Not supported type of field 'nome': java.lang.StringBuilder.", e.getMessage());
+		}
+		try {
+			reader.mapper(WithoutDefaultConstructor.class);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("Class " + WithoutDefaultConstructor.class.getName() + " must have a constructor without arguments.",
+					e.getMessage());
+		}
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+	private File getFeriadosFile() {
+		return new File(getClass().getResource("feriados.csv").getPath());
+	}
+
+	static class Pessoa {
+
+		String nome;
+
+	}
+
+	static class Colaborador extends Pessoa {
+
+		private int codigo;
+		String setor;
+		Long codigoGerente;
+		String apelido = "unmapped";
+
+	}
+
+	static class Feriado {
+
+		Date data;
+		String nome;
+
+	}
+
+	static class Invalid {
+
+		StringBuilder nome;
+
+	}
+
+	static class WithoutDefaultConstructor {
+
+		String nome;
+
+		WithoutDefaultConstructor(String nome) {
+			this.nome = nome;
+		}
+
+	}
+
+}
@@ -1,11 +1,33 @@
 package com.googlecode.jcobs.csv;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 public class CsvReaderTest {
@@ -189,6 +211,726 @@ public class CsvReaderTest {
 		}
 	}
 
+	@Test
+	public void testReadCsvWithoutHeader() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setFirstLineIsHeader(false);
+		reader.readFile(getFeriadosFile());
+		Assert.assertEquals(9, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Data", reader.getString(0));
+		Assert.assertEquals("Nome", reader.getString(1));
+	}
+
+	@Test
+	public void testReadFileInParallel() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Nome\r\n");
+		for (int i = 0; i < 1000; ++i) {
+			content.append(i).append(";\"Nome \"\"").append(i).append("\"\";x\"\r\n");
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvReader reader = new CsvReader();
+			new CsvParallelLoader(reader, 4, 100).load(file);
+			Assert.assertEquals(1000, reader.recordCount());
+			for (int i = 0; i < 1000; ++i) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(i, reader.getInteger("codigo").intValue());
+				Assert.assertEquals("Nome \"" + i + "\";x", reader.getString("nome"));
+			}
+
+			reader.setParallelism(3);
+			reader.readFile(file);
+			Assert.assertEquals(1000, reader.recordCount());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReadFileInParallel_WithoutHeader() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setFirstLineIsHeader(false);
+		new CsvParallelLoader(reader, 2, 1).load(getColaboradoresFile());
+		Assert.assertEquals(5, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Codigo", reader.getString(0));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Thais Nepomuceno", reader.getString(1));
+		Assert.assertNull(reader.getString(3));
+	}
+
+	@Test
+	public void testColumnar() throws IOException, ParseException {
+		CsvReader reader = new CsvReader();
+		reader.setColumnar(true);
+		reader.setFieldType("codigo", CsvFieldType.INTEGER);
+		reader.setFieldType(3, CsvFieldType.LONG);
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(4, reader.recordCount());
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+		Assert.assertEquals("11000", reader.getString("codigo"));
+		Assert.assertEquals("Thais Nepomuceno", reader.getString("nome"));
+		Assert.assertEquals("Produ\u00e7\u00e3o", reader.getString("setor"));
+		Assert.assertEquals(null, reader.getLong("codigogerente"));
+		Assert.assertTrue(reader.isNull("codigogerente"));
+
+		Assert.assertTrue(reader.next());
+		Assert.assertTrue(reader.next());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_003, reader.getInteger(0).intValue());
+		Assert.assertEquals("Passadoria", reader.getString(2));
+		Assert.assertEquals(11_002, reader.getLong(3).longValue());
+		Assert.assertEquals(11_002, reader.getInteger(3).intValue());
+		Assert.assertFalse(reader.next());
+
+		reader = new CsvReader();
+		reader.setColumnar(true);
+		reader.setFieldType("data", CsvFieldType.UTIL_DATE);
+		reader.readFile(getFeriadosFile());
+		Assert.assertTrue(reader.next());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("12/06/2014"), reader.getDate("data"));
+		Assert.assertEquals("12/06/2014", reader.getString("data"));
+		Assert.assertEquals("Dia dos \"Namorados\"", reader.getString("nome"));
+	}
+
+	@Test
+	public void testPrimitiveValues() throws IOException, ParseException {
+		for (boolean columnar : new boolean[] { false, true }) {
+			CsvReader reader = new CsvReader();
+			reader.setColumnar(columnar);
+			reader.setFieldType("codigo", CsvFieldType.INTEGER);
+			reader.readFile(getColaboradoresFile());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getIntValue("codigo"));
+			Assert.assertEquals(11_000L, reader.getLongValue(0));
+			Assert.assertEquals(0, reader.getIntValue("codigogerente"));
+			Assert.assertTrue(reader.isNull("codigogerente"));
+			Assert.assertFalse(reader.isNull(0));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_000, reader.getIntValue(3));
+			Assert.assertEquals(11_000L, reader.getLongValue("codigogerente"));
+			try {
+				reader.getIntValue("nome");
+				Assert.fail();
+			} catch (NumberFormatException e) {
+				// Not a number
+			}
+			try {
+				reader.isNull(4);
+				Assert.fail();
+			} catch (IllegalArgumentException e) {
+				Assert.assertEquals("Invalid field index: 4. Max is 3.", e.getMessage());
+			}
+
+			reader = new CsvReader();
+			reader.setColumnar(columnar);
+			reader.setFieldType("data", CsvFieldType.UTIL_DATE);
+			reader.readFile(getFeriadosFile());
+			Assert.assertTrue(reader.next());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("12/06/2014").getTime(), reader.getDateMillis("data"));
+			Assert.assertEquals(reader.getDate(0).getTime(), reader.getDateMillis(0));
+		}
+	}
+
+	@Test
+	public void testField() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		CsvField<Integer> codigo = reader.field("Codigo", CsvFieldType.INTEGER);
+		CsvField<String> nome = reader.field("nome", CsvFieldType.STRING);
+		CsvField<Long> gerente = reader.field(3, CsvFieldType.LONG);
+		Assert.assertEquals(0, codigo.getIndex());
+		Assert.assertEquals("Codigo", codigo.getName());
+		Assert.assertNull(gerente.getName());
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, codigo.get().intValue());
+		Assert.assertEquals(11_000, codigo.getIntValue());
+		Assert.assertEquals("Thais Nepomuceno", nome.get());
+		Assert.assertTrue(gerente.isNull());
+		Assert.assertNull(gerente.get());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000L, gerente.get().longValue());
+		Assert.assertEquals("11000", gerente.getString());
+
+		// The names are looked up once, in any case
+		Assert.assertEquals(1, reader.getFieldIndex("NOME"));
+		Assert.assertEquals(1, reader.getFieldIndex("Nome"));
+		Assert.assertEquals(1, reader.getFieldIndex("Nome"));
+		try {
+			reader.field("sobrenome", CsvFieldType.STRING);
+			Assert.fail();
+		} catch (CsvFormatError e) {
+			Assert.assertEquals("Field not found: 'SOBRENOME'.", e.getMessage());
+		}
+		try {
+			reader.field(4, CsvFieldType.STRING);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("Invalid field index: 4. Max is 3.", e.getMessage());
+		}
+
+		reader.readFile(getFeriadosFile());
+		Assert.assertEquals(1, reader.getFieldIndex("nome"));
+		try {
+			reader.getFieldIndex("Codigo");
+			Assert.fail();
+		} catch (CsvFormatError e) {
+			// Not cached from the previous file
+		}
+	}
+
+	@Test
+	public void testRead_StreamWithCharset() throws IOException {
+		byte[] content = "Nome;Setor\nAng\u00e9lica;Produ\u00e7\u00e3o\n".getBytes("UTF-8");
+		CsvReader reader = new CsvReader();
+		reader.setCharset(Charset.forName("UTF-8"));
+		reader.read(new ByteArrayInputStream(content));
+		Assert.assertEquals(1, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Ang\u00e9lica", reader.getString("nome"));
+		Assert.assertEquals("Produ\u00e7\u00e3o", reader.getString("setor"));
+
+		reader.setCharset(Charset.forName("ISO-8859-1"));
+		reader.read(Channels.newChannel(new ByteArrayInputStream(content)));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Ang\u00c3\u00a9lica", reader.getString("nome"));
+	}
+
+	@Test
+	public void testRead_GzipStream() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Nome\n");
+		for (int i = 0; i < 100_000; ++i) {
+			content.append(i).append(";Nome ").append(i).append('\n');
+		}
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(content.toString().getBytes("UTF-8"));
+		}
+
+		CsvReader reader = new CsvReader();
+		reader.read(new ByteArrayInputStream(compressed.toByteArray()));
+		Assert.assertEquals(100_000, reader.recordCount());
+		reader.moveTo(99_999);
+		Assert.assertEquals(99_999, reader.getIntValue("codigo"));
+		Assert.assertEquals("Nome 99999", reader.getString("nome"));
+
+		File file = File.createTempFile("jcobs", ".csv.gz");
+		try {
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write(compressed.toByteArray());
+			}
+			reader = new CsvReader();
+			reader.setParallelism(4);
+			reader.readFile(file);
+			Assert.assertEquals(100_000, reader.recordCount());
+			reader.moveTo(5);
+			Assert.assertEquals("Nome 5", reader.getString("nome"));
+		} finally {
+			file.delete();
+		}
+
+		// Truncated
+		byte[] truncated = Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2);
+		try {
+			reader.read(new ByteArrayInputStream(truncated));
+			Assert.fail();
+		} catch (EOFException e) {
+			// Thrown by the background thread, then by the reader
+		}
+	}
+
+	@Test
+	public void testReadAhead() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Nome\n");
+		for (int i = 0; i < 300_000; ++i) {
+			content.append(i).append(";Nome \"").append(i).append("\"\n");
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvReader reader = new CsvReader();
+			reader.setReadAhead(true);
+			reader.readFile(file);
+			Assert.assertEquals(300_000, reader.recordCount());
+			for (int i = 0; i < 300_000; i += 997) {
+				reader.moveTo(i);
+				Assert.assertEquals(i, reader.getIntValue(0));
+				Assert.assertEquals("Nome " + i, reader.getString(1));
+			}
+
+			try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+				bigReader.setReadAhead(true);
+				bigReader.readFile(file);
+				int count = 0;
+				while (bigReader.next()) {
+					Assert.assertEquals(count++, bigReader.getIntValue("codigo"));
+				}
+				Assert.assertEquals(300_000, count);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReadAhead_CloseBlockedSource() throws IOException, InterruptedException {
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+		final CountDownLatch readEnded = new CountDownLatch(1);
+		// Blocks until closed, ignoring interrupts like most streams do
+		InputStream source = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				return read(new byte[1], 0, 1);
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				reading.countDown();
+				while (closed.getCount() > 0) {
+					try {
+						closed.await();
+					} catch (InterruptedException e) {
+						// Ignored
+					}
+				}
+				readEnded.countDown();
+				throw new IOException("Stream closed.");
+			}
+
+			@Override
+			public void close() {
+				closed.countDown();
+			}
+		};
+		CsvAsyncInputStream in = new CsvAsyncInputStream(source);
+		Assert.assertTrue(reading.await(5, TimeUnit.SECONDS));
+		in.close();
+		Assert.assertTrue(readEnded.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testStream() throws IOException, ParseException {
+		CsvReader reader = new CsvReader();
+		reader.setFieldType("codigo", CsvFieldType.INTEGER);
+		reader.readFile(getColaboradoresFile());
+		reader.moveTo(2);
+
+		List<CsvRecord> records = reader.stream().filter(r -> !r.isNull("codigoGerente")).collect(Collectors.toList());
+		Assert.assertEquals(3, records.size());
+		CsvRecord record = records.get(0);
+		Assert.assertEquals(1, record.getIndex());
+		Assert.assertEquals(11_001, record.getIntValue("codigo"));
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", record.getString(1));
+		Assert.assertEquals(11_000L, record.getLong("codigoGerente").longValue());
+		Assert.assertEquals(11_002, records.get(2).getInteger(3).intValue());
+		// The cursor is not moved
+		Assert.assertEquals(11_002, reader.getIntValue("codigo"));
+
+		reader = new CsvReader();
+		reader.setFieldType("data", CsvFieldType.UTIL_DATE);
+		reader.readFile(getFeriadosFile());
+		SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
+		Date natal = format.parse("25/12/2014");
+		Assert.assertEquals(1, reader.stream().filter(r -> r.getDate("data").equals(natal)).count());
+		Assert.assertEquals(format.parse("31/12/2014").getTime(), reader.stream().mapToLong(r -> r.getDateMillis(0)).max().getAsLong());
+	}
+
+	@Test
+	public void testParallelStream() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Grupo\n");
+		for (int i = 0; i < 100_000; ++i) {
+			content.append(i).append(';').append(i % 7).append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvReader reader = new CsvReader();
+			reader.setColumnar(true);
+			reader.setFieldType("codigo", CsvFieldType.LONG);
+			reader.readFile(file);
+			Spliterator<CsvRecord> spliterator = reader.spliterator();
+			Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+			Spliterator<CsvRecord> prefix = spliterator.trySplit();
+			Assert.assertEquals(50_000, prefix.estimateSize());
+			Assert.assertEquals(50_000, spliterator.estimateSize());
+
+			Assert.assertEquals(99_999L * 100_000 / 2, reader.parallelStream().mapToLong(r -> r.getLongValue(0)).sum());
+			Map<String, Long> counts = reader.parallelStream().collect(Collectors.groupingBy(r -> r.getString("grupo"), Collectors.counting()));
+			Assert.assertEquals(14_286, counts.get("0").longValue());
+			Assert.assertEquals(14_285, counts.get("6").longValue());
+			List<Integer> indexes = reader.parallelStream().map(CsvRecord::getIndex).collect(Collectors.toList());
+			for (int i = 0; i < 100_000; ++i) {
+				Assert.assertEquals(i, indexes.get(i).intValue());
+			}
+
+			try (CsvBigFileReader bigReader = new CsvBigFileReader()) {
+				bigReader.readFile(file);
+				// The records already read are not streamed
+				Assert.assertTrue(bigReader.next());
+				Assert.assertTrue(bigReader.next());
+				Assert.assertEquals(99_999L * 100_000 / 2 - 1, bigReader.parallelStream().mapToLong(r -> r.getLongValue("codigo")).sum());
+				Assert.assertFalse(bigReader.next());
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testStream_RecordsReloaded() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.readFile(getColaboradoresFile());
+		Iterator<CsvRecord> iterator = reader.stream().iterator();
+		Assert.assertEquals("11000", iterator.next().getString("codigo"));
+		reader.readFile(getColaboradoresFile());
+		try {
+			iterator.next();
+			Assert.fail();
+		} catch (ConcurrentModificationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testFollow() throws IOException {
+		File file = CsvTestFiles.createTempFile("Codigo;Nome\r\n11000;Thais\r\n11001;Ala");
+		try {
+			CsvReader reader = new CsvReader();
+			reader.setFieldType("codigo", CsvFieldType.INTEGER);
+			reader.follow(file);
+			Assert.assertSame(file, reader.getFollowedFile());
+			// The last line is partially written
+			Assert.assertEquals(1, reader.recordCount());
+			Assert.assertEquals(0, reader.poll());
+			CsvIndex index = reader.createIndex("codigo", CsvFieldType.INTEGER);
+
+			append(file, "na\r\n11002;Amanda\r\n");
+			Assert.assertEquals(2, reader.poll());
+			Assert.assertEquals(3, reader.recordCount());
+			reader.moveTo(1);
+			Assert.assertEquals("Alana", reader.getString("nome"));
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(11_002, reader.getIntValue(0));
+			try {
+				index.find(11_000);
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				// Expected: records were added
+			}
+
+			// Replaced by a shorter file
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write("Codigo;Nome\n11003;Angelica\n".getBytes("US-ASCII"));
+			}
+			Assert.assertEquals(1, reader.poll());
+			Assert.assertEquals(1, reader.recordCount());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Angelica", reader.getString(1));
+
+			reader.readFile(file);
+			Assert.assertNull(reader.getFollowedFile());
+			try {
+				reader.poll();
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				Assert.assertEquals("No file is being followed.", e.getMessage());
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testFollow_Replaced() throws IOException {
+		File file = CsvTestFiles.createTempFile("Codigo;Nome\n11000;Thais\n");
+		File replacement = null;
+		try {
+			CsvReader reader = new CsvReader();
+			reader.follow(file);
+			Assert.assertEquals(1, reader.recordCount());
+
+			// Rewritten in place, with the same size
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write("Codigo;Nome\n11009;Bruna\n".getBytes("US-ASCII"));
+			}
+			Assert.assertEquals(1, reader.poll());
+			Assert.assertEquals(1, reader.recordCount());
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("Bruna", reader.getString(1));
+
+			// Replaced by a bigger file starting with the same bytes
+			Assume.assumeNotNull(Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey());
+			replacement = CsvTestFiles.createTempFile("Codigo;Nome\n11009;Bruna\n11010;Carla\n");
+			Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Assert.assertEquals(2, reader.poll());
+			Assert.assertEquals(2, reader.recordCount());
+		} finally {
+			file.delete();
+			if (replacement != null) {
+				replacement.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testFollow_InvalidLine() throws IOException {
+		File file = CsvTestFiles.createTempFile("A;B\n1;x\n");
+		try {
+			CsvReader reader = new CsvReader();
+			reader.follow(file);
+			CsvIndex index = reader.createIndex("a", CsvFieldType.INTEGER);
+
+			append(file, "2;y\n3;z;extra\n4;w\n");
+			try {
+				reader.poll();
+				Assert.fail("A CsvFormatError must have been thrown.");
+			} catch (CsvFormatError e) {
+				Assert.assertEquals("Record with 3 fragments. Expecting 2.", e.getMessage());
+			}
+			// The records before the invalid line are kept, but not read again
+			Assert.assertEquals(2, reader.recordCount());
+			Assert.assertNull(reader.getFollowedFile());
+			try {
+				reader.poll();
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				Assert.assertEquals("No file is being followed.", e.getMessage());
+			}
+			try {
+				index.find(1);
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				// Expected: records were added
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testFollow_EmptyFile() throws Exception {
+		File file = CsvTestFiles.createTempFile("Codigo;No");
+		try {
+			CsvReader reader = new CsvReader();
+			reader.follow(file);
+			Assert.assertEquals(0, reader.recordCount());
+			try (CsvFileWatcher watcher = new CsvFileWatcher(reader)) {
+				append(file, "me\n11000;Thais\n");
+				Assert.assertEquals(1, watcher.await(10, TimeUnit.SECONDS));
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals("Thais", reader.getString("nome"));
+				Assert.assertEquals(0, watcher.await(10, TimeUnit.MILLISECONDS));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void append(File file, String content) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(content.getBytes("US-ASCII"));
+		}
+	}
+
+	@Test
+	public void testProjection_ByFieldName() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setProjection("codigogerente", "nome");
+		reader.setFieldType(0, CsvFieldType.INTEGER);
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(2, reader.fieldCount());
+		Assert.assertEquals(4, reader.recordCount());
+
+		Assert.assertTrue(reader.next());
+		Assert.assertNull(reader.getInteger("codigogerente"));
+		Assert.assertEquals("Thais Nepomuceno", reader.getString(1));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, reader.getInteger(0).intValue());
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", reader.getString("nome"));
+		try {
+			reader.getString("setor");
+			Assert.fail("A CsvFormatError must have been thrown.");
+		} catch (CsvFormatError ex) {
+			Assert.assertEquals("Field not found: 'SETOR'.", ex.getMessage());
+		}
+		try {
+			reader.getString(2);
+			Assert.fail("An IllegalArgumentException must have been thrown.");
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid field index: 2. Max is 1.", ex.getMessage());
+		}
+
+		reader = new CsvReader();
+		reader.setProjection("nome", "data");
+		try {
+			reader.readFile(getColaboradoresFile());
+			Assert.fail("A CsvFormatError must have been thrown.");
+		} catch (CsvFormatError ex) {
+			Assert.assertEquals("Field not found: 'DATA'.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testProjection_WithDelimiters() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.setProjection("nome");
+		reader.readFile(getFeriadosFile());
+		Assert.assertTrue(reader.next());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Dia dos \"Namorados\"", reader.getString(0));
+		Assert.assertTrue(reader.next());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Semifinais Copa Brasil;Alemanha 7 x 1 Brasil", reader.getString("nome"));
+
+		reader = new CsvReader();
+		reader.setProjection(1);
+		reader.setFirstLineIsHeader(false);
+		reader.readFile(getFeriadosFile());
+		Assert.assertEquals(9, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Nome", reader.getString(0));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Confraterniza\u00e7\u00e3o Internacional", reader.getString(0));
+	}
+
+	@Test
+	public void testProjection_AllReaders() throws IOException {
+		File file = CsvTestFiles.createTempFile("A;B;C;D\n1;\"x;y\";;4\n5;6;7;\"8\"\"\"\n");
+		try {
+			CsvReader reader = new CsvReader();
+			reader.setProjection(3, 1);
+			new CsvParallelLoader(reader, 2, 1).load(file);
+			assertProjectedRecords(reader);
+
+			reader.setParallelism(2);
+			reader.setColumnar(true);
+			reader.readFile(file);
+			assertProjectedRecords(reader);
+
+			try (CsvBigFileReader bigFileReader = new CsvBigFileReader()) {
+				bigFileReader.setProjection("d", "b");
+				bigFileReader.readFile(file);
+				assertProjectedRecords(bigFileReader);
+			}
+			try (CsvMappedFileReader mappedReader = new CsvMappedFileReader()) {
+				mappedReader.setProjection("d", "b");
+				mappedReader.readFile(file);
+				assertProjectedRecords(mappedReader);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testFilter() throws IOException {
+		CsvReader reader = new CsvReader();
+		reader.addFilter("setor", new CsvFilter() {
+			@Override
+			public boolean accept(String value) {
+				return "Produ\u00e7\u00e3o".equals(value);
+			}
+		});
+		reader.addFilter(3, new CsvFilter() {
+			@Override
+			public boolean accept(String value) {
+				return value != null;
+			}
+		});
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(2, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_001, reader.getInteger("codigo").intValue());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_002, reader.getInteger(0).intValue());
+		Assert.assertFalse(reader.next());
+
+		reader.setProjection("nome");
+		reader.setColumnar(true);
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(2, reader.recordCount());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Alana Monteiro Bispo da Silva", reader.getString(0));
+
+		reader.clearFilters();
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(4, reader.recordCount());
+	}
+
+	@Test
+	public void testFilter_RejectedBeforeParsingTheRest() throws IOException {
+		File file = CsvTestFiles.createTempFile("Tipo;Valor\nA;1\nB;2;extra\nA;3\n");
+		CsvFilter tipoA = new CsvFilter() {
+			@Override
+			public boolean accept(String value) {
+				return "A".equals(value);
+			}
+		};
+		try {
+			CsvReader reader = new CsvReader();
+			reader.addFilter("tipo", tipoA);
+			reader.readFile(file);
+			assertValores(reader, 1, 3);
+
+			reader = new CsvReader();
+			reader.addFilter("tipo", tipoA);
+			new CsvParallelLoader(reader, 2, 1).load(file);
+			assertValores(reader, 1, 3);
+
+			try (CsvBigFileReader bigFileReader = new CsvBigFileReader()) {
+				bigFileReader.addFilter(0, tipoA);
+				bigFileReader.readFile(file);
+				assertValores(bigFileReader, 1, 3);
+			}
+			try (CsvMappedFileReader mappedReader = new CsvMappedFileReader()) {
+				mappedReader.addFilter("tipo", tipoA);
+				mappedReader.readFile(file);
+				assertValores(mappedReader, 1, 3);
+			}
+
+			// The malformed line is only reported when accepted
+			reader = new CsvReader();
+			reader.addFilter("tipo", new CsvFilter() {
+				@Override
+				public boolean accept(String value) {
+					return !"A".equals(value);
+				}
+			});
+			try {
+				reader.readFile(file);
+				Assert.fail("A CsvFormatError must have been thrown.");
+			} catch (CsvFormatError ex) {
+				Assert.assertEquals("Record with 3 fragments. Expecting 2.", ex.getMessage());
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertValores(CsvReader reader, int... valores) {
+		for (int valor : valores) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("A", reader.getString("tipo"));
+			Assert.assertEquals(valor, reader.getInteger("valor").intValue());
+		}
+		Assert.assertFalse(reader.next());
+	}
+
+	private static void assertProjectedRecords(CsvReader reader) {
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("4", reader.getString("d"));
+		Assert.assertEquals("x;y", reader.getString(1));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("8\"", reader.getString(0));
+		Assert.assertEquals("6", reader.getString("b"));
+		Assert.assertFalse(reader.next());
+	}
+
 	private File getColaboradoresFile() {
 		return new File(getClass().getResource("colaboradores.csv").getPath());
 	}
@@ -0,0 +1,204 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvSnapshotTest {
+
+	private static final String CONTENT = "Codigo;Nome;Setor;Admissao\n" //
+			+ "007;Thais Nepomuceno;Produ\u00e7\u00e3o;01/02/2010\n" //
+			+ "11001;\"Alana \"\"Bispo\"\"\";Produ\u00e7\u00e3o;\n" //
+			+ "11002;Amanda C. Moreira;;15/03/2012\n";
+
+	@Test
+	public void testSnapshot_Records() throws IOException, ParseException {
+		File file = CsvTestFiles.createTempFile(CONTENT, StandardCharsets.UTF_8);
+		File snapshot = new File(file.getPath() + ".snapshot");
+		try {
+			CountingReader reader = newReader(false);
+			reader.readFile(file);
+			Assert.assertEquals(1, reader.headers);
+			Assert.assertTrue(snapshot.isFile());
+			assertRecords(reader);
+
+			reader = newReader(false);
+			reader.readFile(file);
+			Assert.assertEquals(0, reader.headers);
+			assertRecords(reader);
+			// Typed fields keep the original text when stored by record
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("007", reader.getString("codigo"));
+		} finally {
+			file.delete();
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshot_Columnar() throws IOException, ParseException {
+		File file = CsvTestFiles.createTempFile(CONTENT, StandardCharsets.UTF_8);
+		File snapshot = new File(file.getPath() + ".snapshot");
+		try {
+			CountingReader reader = newReader(true);
+			reader.readFile(file);
+			Assert.assertEquals(1, reader.headers);
+
+			reader = newReader(true);
+			reader.readFile(file);
+			Assert.assertEquals(0, reader.headers);
+			assertRecords(reader);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals("7", reader.getString("codigo"));
+			Assert.assertTrue(((CsvStringColumn) reader.columns[2]).isDictionaryEncoded());
+
+			// Without the snapshot, the options don't match
+			CountingReader other = newReader(false);
+			other.readFile(file);
+			Assert.assertEquals(1, other.headers);
+			other = new CountingReader();
+			other.setSnapshotEnabled(true);
+			other.setProjection("nome");
+			other.readFile(file);
+			Assert.assertEquals(1, other.headers);
+			Assert.assertEquals(1, other.fieldCount());
+		} finally {
+			file.delete();
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshot_Windows() throws IOException, ParseException {
+		File file = CsvTestFiles.createTempFile(CONTENT, StandardCharsets.UTF_8);
+		File snapshot = new File(file.getPath() + ".snapshot");
+		try {
+			for (boolean columnar : new boolean[] { false, true }) {
+				newReader(columnar).readFile(file);
+				// Values, arrays and strings split between windows
+				for (int windowSize = 8; windowSize <= 13; ++windowSize) {
+					CountingReader reader = newReader(columnar);
+					CsvSnapshot loader = new CsvSnapshot(reader, file);
+					loader.setWindowSize(windowSize);
+					Assert.assertTrue(loader.load());
+					assertRecords(reader);
+				}
+			}
+		} finally {
+			file.delete();
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshot_SourceChanged() throws IOException {
+		File file = CsvTestFiles.createTempFile(CONTENT, StandardCharsets.UTF_8);
+		File snapshot = new File(file.getPath() + ".snapshot");
+		try {
+			CountingReader reader = newReader(false);
+			reader.readFile(file);
+			long modified = file.lastModified();
+
+			try (FileOutputStream stream = new FileOutputStream(file, true)) {
+				stream.write("11003;Ang\u00e9lica;Passadoria;\n".getBytes(StandardCharsets.UTF_8));
+			}
+			file.setLastModified(modified);
+			reader = newReader(false);
+			reader.readFile(file);
+			Assert.assertEquals(1, reader.headers);
+			Assert.assertEquals(4, reader.recordCount());
+
+			// Same size and time, different content
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.seek(raf.length() - "Passadoria;\n".length());
+				raf.write('X');
+			}
+			file.setLastModified(modified);
+			reader = newReader(false);
+			reader.readFile(file);
+			Assert.assertEquals(1, reader.headers);
+			reader.moveTo(3);
+			Assert.assertEquals("Xassadoria", reader.getString("setor"));
+		} finally {
+			file.delete();
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshot_Corrupted() throws IOException, ParseException {
+		File file = CsvTestFiles.createTempFile(CONTENT, StandardCharsets.UTF_8);
+		File snapshot = new File(file.getPath() + ".snapshot");
+		try {
+			newReader(true).readFile(file);
+			try (RandomAccessFile raf = new RandomAccessFile(snapshot, "rw")) {
+				raf.setLength(raf.length() - 10);
+			}
+			CountingReader reader = newReader(true);
+			reader.readFile(file);
+			Assert.assertEquals(1, reader.headers);
+			assertRecords(reader);
+
+			reader = newReader(true);
+			reader.readFile(file);
+			Assert.assertEquals(0, reader.headers);
+			assertRecords(reader);
+		} finally {
+			file.delete();
+			snapshot.delete();
+		}
+	}
+
+	private static CountingReader newReader(boolean columnar) {
+		CountingReader reader = new CountingReader();
+		reader.setCharset(StandardCharsets.UTF_8);
+		reader.setSnapshotEnabled(true);
+		reader.setColumnar(columnar);
+		reader.setFieldType("codigo", CsvFieldType.INTEGER);
+		reader.setFieldType("admissao", CsvFieldType.UTIL_DATE);
+		return reader;
+	}
+
+	private static void assertRecords(CsvReader reader) throws ParseException {
+		SimpleDateFormat dateFmt = new SimpleDateFormat("dd/MM/yyyy");
+		Assert.assertEquals(3, reader.recordCount());
+		reader.moveTo(0);
+		Assert.assertEquals(7, reader.getInteger("codigo").intValue());
+		Assert.assertEquals("Produ\u00e7\u00e3o", reader.getString("setor"));
+		Assert.assertEquals(dateFmt.parse("01/02/2010"), reader.getDate(3));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Alana \"Bispo\"", reader.getString("nome"));
+		Assert.assertNull(reader.getDate("admissao"));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_002, reader.getInteger(0).intValue());
+		Assert.assertNull(reader.getString("setor"));
+		Assert.assertEquals("15/03/2012", reader.getString("admissao"));
+		Assert.assertFalse(reader.next());
+		reader.currentIndex = -1;
+	}
+
+	/**
+	 * Counts the headers parsed, which are not parsed when the snapshot is
+	 * loaded.
+	 */
+	private static class CountingReader extends CsvReader {
+
+		private int headers;
+
+		@Override
+		protected void readHeader(List<String> fieldNames) {
+			++headers;
+			super.readHeader(fieldNames);
+		}
+
+	}
+
+}
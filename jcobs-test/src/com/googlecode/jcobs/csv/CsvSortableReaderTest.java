@@ -0,0 +1,338 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvSortableReaderTest {
+
+	@Test
+	public void testSort_ByInteger_NullsFirst() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.sort("codigogerente", CsvFieldType.INTEGER, true);
+		assertCodigos(reader, 11_000, 11_001, 11_002, 11_003);
+
+		reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		assertCodigos(reader, 11_003, 11_002, 11_001, 11_000);
+	}
+
+	@Test
+	public void testSort_DeclaredTypes_ConvertedOnlyOnce() throws IOException {
+		final int[] conversions = new int[1];
+		CsvSortableReader reader = new CsvSortableReader() {
+			@SuppressWarnings("rawtypes")
+			@Override
+			protected Comparable convertValue(String value, CsvFieldType type) {
+				if (type != CsvFieldType.STRING) {
+					++conversions[0];
+				}
+				return super.convertValue(value, type);
+			}
+		};
+		reader.setFieldType("codigo", CsvFieldType.INTEGER);
+		reader.setFieldType("codigogerente", CsvFieldType.INTEGER);
+		reader.readFile(getColaboradoresFile());
+
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		reader.sort("codigogerente", CsvFieldType.INTEGER, false);
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_003, reader.getInteger("codigo").intValue());
+		Assert.assertEquals(11_003, reader.getInteger("codigo").intValue());
+		Assert.assertEquals(11_002, reader.getInteger("codigogerente").intValue());
+		Assert.assertEquals("Ang\u00e9lica Augusta Linhares do Monte", reader.getString("nome"));
+		Assert.assertEquals(0, conversions[0]);
+	}
+
+	@Test
+	public void testSort_Columnar() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.setColumnar(true);
+		reader.readFile(getColaboradoresFile());
+		reader.sort("nome", CsvFieldType.STRING, true);
+		assertCodigos(reader, 11_001, 11_002, 11_003, 11_000);
+	}
+
+	@Test
+	public void testSort_MultipleFields() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.sort(new CsvSortField("setor", CsvFieldType.STRING, false), new CsvSortField("codigo", CsvFieldType.INTEGER, true));
+		assertCodigos(reader, 11_000, 11_001, 11_002, 11_003);
+
+		reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.sort(new CsvSortField("setor", CsvFieldType.STRING, true), new CsvSortField(0, CsvFieldType.LONG, false));
+		assertCodigos(reader, 11_003, 11_002, 11_001, 11_000);
+	}
+
+	@Test
+	public void testSort_Parallel_Stable() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Grupo;Valor\n");
+		for (int i = 0; i < 50_000; ++i) {
+			content.append(i).append(';').append((i * 7919) % 97).append(';');
+			if (i % 11 != 0) {
+				content.append((i * 104_729L) % 1_000_003L);
+			}
+			content.append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvSortableReader reader = new CsvSortableReader();
+			reader.readFile(file);
+			reader.sort(new CsvSortField("grupo", CsvFieldType.INTEGER, true), new CsvSortField("valor", CsvFieldType.LONG, false));
+			Assert.assertEquals(50_000, reader.recordCount());
+			int previousGrupo = -1;
+			Long previousValor = null;
+			int previousCodigo = -1;
+			while (reader.next()) {
+				int grupo = reader.getInteger("grupo");
+				Long valor = reader.getLong("valor");
+				int codigo = reader.getInteger("codigo");
+				Assert.assertTrue(grupo >= previousGrupo);
+				if (grupo == previousGrupo) {
+					// Descending order, so nulls come last
+					Assert.assertTrue(previousValor != null || valor == null);
+					if (valor != null && previousValor != null) {
+						Assert.assertTrue(valor <= previousValor);
+					}
+					if (valor == null && previousValor == null) {
+						Assert.assertTrue(codigo > previousCodigo);
+					}
+				}
+				previousGrupo = grupo;
+				previousValor = valor;
+				previousCodigo = codigo;
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSeek() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		reader.sort("codigogerente", CsvFieldType.INTEGER, true);
+
+		Assert.assertTrue(reader.seek(11_000));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_001, reader.getInteger("codigo").intValue());
+		Assert.assertTrue(reader.seek(11_001L));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_003, reader.getInteger("codigo").intValue());
+		Assert.assertTrue(reader.seek((Object) null));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals(11_001, reader.getInteger("codigo").intValue());
+		Assert.assertFalse(reader.seek("11003"));
+		Assert.assertFalse(reader.next());
+
+		reader.sort(new CsvSortField("setor", CsvFieldType.STRING, false), new CsvSortField("codigo", CsvFieldType.INTEGER, true));
+		Assert.assertTrue(reader.seek("Produ\u00e7\u00e3o", 11_001));
+		assertCodigos(reader, 11_001, 11_002, 11_003);
+	}
+
+	@Test
+	public void testRange_Dates() throws IOException, ParseException {
+		SimpleDateFormat dateFmt = new SimpleDateFormat("dd/MM/yyyy");
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.setColumnar(true);
+		reader.setFieldType("data", CsvFieldType.UTIL_DATE);
+		reader.readFile(getFeriadosFile());
+		reader.sort("data", CsvFieldType.UTIL_DATE, true);
+
+		Assert.assertEquals(2, reader.range(dateFmt.parse("01/06/2014"), dateFmt.parse("08/07/2014")));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("12/06/2014", reader.getString("data"));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("Corpus Christi", reader.getString("nome"));
+		Assert.assertFalse(reader.next());
+
+		Assert.assertEquals(0, reader.range("13/06/2014", "19/06/2014"));
+		Assert.assertFalse(reader.next());
+
+		reader.clearRange();
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("19/06/2014", reader.getString("data"));
+
+		reader.sort("data", CsvFieldType.UTIL_DATE, false);
+		Assert.assertEquals(2, reader.range("08/07/2014", "12/06/2014"));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("08/07/2014", reader.getString("data"));
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("19/06/2014", reader.getString("data"));
+		Assert.assertFalse(reader.next());
+	}
+
+	@Test
+	public void testSort_RecordsAdded() throws IOException {
+		File file = CsvTestFiles.createTempFile("Codigo\n3\n1\n2\n");
+		try {
+			CsvSortableReader reader = new CsvSortableReader();
+			reader.follow(file);
+			reader.sort("codigo", CsvFieldType.INTEGER, true);
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(1, reader.getIntValue(0));
+
+			try (FileOutputStream out = new FileOutputStream(file, true)) {
+				out.write("0\n5\n".getBytes(StandardCharsets.US_ASCII));
+			}
+			Assert.assertEquals(2, reader.poll());
+			// The sort is dropped, going on in the order of the file
+			reader.moveTo(3);
+			assertCodigos(reader, 5);
+			reader.moveTo(1);
+			assertCodigos(reader, 2, 0, 5);
+			try {
+				reader.seek(1);
+				Assert.fail("An IllegalStateException must have been thrown.");
+			} catch (IllegalStateException ex) {
+				Assert.assertEquals("The records must be sorted before being searched.", ex.getMessage());
+			}
+
+			reader.sort("codigo", CsvFieldType.INTEGER, true);
+			assertCodigos(reader, 0, 1, 2, 3, 5);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSeek_NotSorted() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		try {
+			reader.seek(11_000);
+			Assert.fail("An IllegalStateException must have been thrown.");
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals("The records must be sorted before being searched.", ex.getMessage());
+		}
+		reader.sort("codigo", CsvFieldType.INTEGER, true);
+		reader.readFile(getColaboradoresFile());
+		try {
+			reader.range(11_000, 11_002);
+			Assert.fail("An IllegalStateException must have been thrown.");
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals("The records must be sorted before being searched.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testSort_CachedOrders() throws IOException {
+		int[] conversions = new int[1];
+		CsvSortableReader reader = new CsvSortableReader() {
+			@SuppressWarnings("rawtypes")
+			@Override
+			protected Comparable convertValue(String value, CsvFieldType type) {
+				if (type != CsvFieldType.STRING) {
+					++conversions[0];
+				}
+				return super.convertValue(value, type);
+			}
+		};
+		reader.readFile(getColaboradoresFile());
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		Assert.assertEquals(4, conversions[0]);
+		reader.sort("nome", CsvFieldType.STRING, true);
+		reader.sort(0, CsvFieldType.INTEGER, false);
+		// The order by codigo was not computed again
+		Assert.assertEquals(4, conversions[0]);
+		assertCodigos(reader, 11_003, 11_002, 11_001, 11_000);
+		reader.sort("nome", CsvFieldType.STRING, true);
+		assertCodigos(reader, 11_001, 11_002, 11_003, 11_000);
+
+		// The records are not moved
+		reader.moveTo(0);
+		Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+		Assert.assertFalse(reader.next());
+		reader.moveTo(2);
+		assertCodigos(reader, 11_003, 11_000);
+		reader.clearSort();
+		assertCodigos(reader, 11_000, 11_001, 11_002, 11_003);
+
+		conversions[0] = 0;
+		reader.readFile(getColaboradoresFile());
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		Assert.assertEquals(4, conversions[0]);
+	}
+
+	@Test
+	public void testTop() throws IOException {
+		CsvSortableReader reader = new CsvSortableReader();
+		reader.readFile(getColaboradoresFile());
+		Assert.assertEquals(2, reader.top(2, "codigogerente", CsvFieldType.INTEGER, false));
+		assertCodigos(reader, 11_003, 11_001);
+		Assert.assertEquals(4, reader.top(10, "nome", CsvFieldType.STRING, true));
+		assertCodigos(reader, 11_001, 11_002, 11_003, 11_000);
+		// The records are not moved
+		reader.clearRange();
+		reader.moveTo(0);
+		Assert.assertEquals(11_000, reader.getInteger("codigo").intValue());
+
+		Assert.assertEquals(0, reader.top(0, "codigo", CsvFieldType.INTEGER, true));
+		Assert.assertFalse(reader.next());
+		reader.sort("codigo", CsvFieldType.INTEGER, false);
+		assertCodigos(reader, 11_003, 11_002, 11_001, 11_000);
+	}
+
+	@Test
+	public void testTop_SameOrderAsSort() throws IOException {
+		StringBuilder content = new StringBuilder("Codigo;Grupo;Valor\n");
+		for (int i = 0; i < 20_000; ++i) {
+			content.append(i).append(';').append((i * 7919) % 97).append(';');
+			if (i % 11 != 0) {
+				content.append((i * 104_729L) % 1_000_003L);
+			}
+			content.append('\n');
+		}
+		File file = CsvTestFiles.createTempFile(content.toString());
+		try {
+			CsvSortableReader sorted = new CsvSortableReader();
+			CsvSortableReader reader = new CsvSortableReader();
+			reader.setFieldType("valor", CsvFieldType.LONG);
+			sorted.readFile(file);
+			reader.readFile(file);
+			for (CsvSortField field : new CsvSortField[] { new CsvSortField("grupo", CsvFieldType.INTEGER, true),
+					new CsvSortField("valor", CsvFieldType.LONG, false), new CsvSortField("valor", CsvFieldType.STRING, true) }) {
+				sorted.sort(field);
+				for (int n : new int[] { 1, 100, 2_000, 30_000 }) {
+					Assert.assertEquals(Math.min(n, 20_000), reader.top(n, field.getFieldName(), field.getFieldType(), field.isAsc()));
+					sorted.sort(field);
+					while (reader.next()) {
+						Assert.assertTrue(sorted.next());
+						Assert.assertEquals(sorted.getString("codigo"), reader.getString("codigo"));
+					}
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertCodigos(CsvReader reader, int... codigos) {
+		for (int codigo : codigos) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(codigo, reader.getInteger("codigo").intValue());
+		}
+		Assert.assertFalse(reader.next());
+	}
+
+	private File getColaboradoresFile() {
+		return new File(getClass().getResource("colaboradores.csv").getPath());
+	}
+
+	private File getFeriadosFile() {
+		return new File(getClass().getResource("feriados.csv").getPath());
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Temporary files for the tests, written with an explicit charset so that
+ * they read back the same whatever the platform default is.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+final class CsvTestFiles {
+
+	private CsvTestFiles() {
+	}
+
+	/**
+	 * Creates a temporary file with content made only of ASCII characters,
+	 * which are encoded the same by the charsets the readers default to.
+	 */
+	static File createTempFile(String content) throws IOException {
+		return createTempFile(content, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Creates a temporary file with the content encoded in the charset. Fails
+	 * if a character can't be encoded, instead of replacing it.
+	 */
+	static File createTempFile(String content, Charset charset) throws IOException {
+		ByteBuffer bytes = charset.newEncoder().encode(CharBuffer.wrap(content));
+		File file = File.createTempFile("jcobs", ".csv");
+		try (FileOutputStream stream = new FileOutputStream(file)) {
+			stream.getChannel().write(bytes);
+		}
+		return file;
+	}
+
+}
@@ -4,7 +4,19 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.googlecode.jcobs.csv.CsvAggregationTest;
+import com.googlecode.jcobs.csv.CsvBigFileReaderTest;
+import com.googlecode.jcobs.csv.CsvColumnTest;
+import com.googlecode.jcobs.csv.CsvDatasetTest;
+import com.googlecode.jcobs.csv.CsvDateParserTest;
+import com.googlecode.jcobs.csv.CsvExternalSortReaderTest;
+import com.googlecode.jcobs.csv.CsvIndexTest;
+import com.googlecode.jcobs.csv.CsvJoinTest;
+import com.googlecode.jcobs.csv.CsvMappedFileReaderTest;
+import com.googlecode.jcobs.csv.CsvMapperTest;
 import com.googlecode.jcobs.csv.CsvReaderTest;
+import com.googlecode.jcobs.csv.CsvSnapshotTest;
+import com.googlecode.jcobs.csv.CsvSortableReaderTest;
 import com.googlecode.jcobs.math.RealBruteForceTest;
 import com.googlecode.jcobs.math.RealTest;
 
@@ -12,6 +24,18 @@ import com.googlecode.jcobs.math.RealTest;
 @SuiteClasses({//
 RealTest.class, //
 		CsvReaderTest.class, //
+		CsvBigFileReaderTest.class, //
+		CsvMappedFileReaderTest.class, //
+		CsvColumnTest.class, //
+		CsvSortableReaderTest.class, //
+		CsvExternalSortReaderTest.class, //
+		CsvIndexTest.class, //
+		CsvSnapshotTest.class, //
+		CsvDateParserTest.class, //
+		CsvMapperTest.class, //
+		CsvDatasetTest.class, //
+		CsvAggregationTest.class, //
+		CsvJoinTest.class, //
 		RealBruteForceTest.class, //
 })
 public class SuiteJcobsTest {
@@ -0,0 +1,78 @@
+package com.googlecode.jcobs.csv;
+
+/**
+ * An aggregate computed for each group of a {@link CsvAggregation}. Sums,
+ * minimums, maximums and averages are computed over the values of a field as
+ * exact decimals, skipping the empty values; counts are the number of
+ * records of the group.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvAggregate {
+
+	private final CsvAggregateFunction function;
+	private final String fieldName;
+	private final int fieldIndex;
+
+	public CsvAggregate(CsvAggregateFunction function, String fieldName) {
+		this.function = function;
+		this.fieldName = fieldName;
+		this.fieldIndex = -1;
+	}
+
+	public CsvAggregate(CsvAggregateFunction function, int fieldIndex) {
+		this.function = function;
+		this.fieldName = null;
+		this.fieldIndex = fieldIndex;
+	}
+
+	public static CsvAggregate count() {
+		return new CsvAggregate(CsvAggregateFunction.COUNT, -1);
+	}
+
+	public static CsvAggregate sum(String fieldName) {
+		return new CsvAggregate(CsvAggregateFunction.SUM, fieldName);
+	}
+
+	public static CsvAggregate min(String fieldName) {
+		return new CsvAggregate(CsvAggregateFunction.MIN, fieldName);
+	}
+
+	public static CsvAggregate max(String fieldName) {
+		return new CsvAggregate(CsvAggregateFunction.MAX, fieldName);
+	}
+
+	public static CsvAggregate avg(String fieldName) {
+		return new CsvAggregate(CsvAggregateFunction.AVG, fieldName);
+	}
+
+	public CsvAggregateFunction getFunction() {
+		return function;
+	}
+
+	/**
+	 * @return the field name, or <code>null</code> if the field was given by
+	 *         index.
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * @return the field index, or -1 if the field was given by name or the
+	 *         aggregate is a count.
+	 */
+	public int getFieldIndex() {
+		return fieldIndex;
+	}
+
+	@Override
+	public String toString() {
+		if (function == CsvAggregateFunction.COUNT) {
+			return "count";
+		}
+		return function.name().toLowerCase() + "(" + (fieldName != null ? fieldName : "#" + fieldIndex) + ")";
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.googlecode.jcobs.csv;
+
+public enum CsvAggregateFunction {
+
+	COUNT, // number of records, java.lang.Long
+	SUM, // com.googlecode.jcobs.math.Real
+	MIN, // com.googlecode.jcobs.math.Real
+	MAX, // com.googlecode.jcobs.math.Real
+	AVG, // com.googlecode.jcobs.math.Real
+	;
+
+}
@@ -0,0 +1,127 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Groups the records of a {@link CsvReader} by the values of some fields and
+ * computes aggregates over each group, like a SQL <code>group by</code>.
+ *
+ * <pre>
+ * CsvAggregation aggregation = new CsvAggregation();
+ * aggregation.addGroupField(&quot;setor&quot;, CsvFieldType.STRING);
+ * aggregation.addAggregate(CsvAggregate.count());
+ * aggregation.addAggregate(CsvAggregate.sum(&quot;salario&quot;));
+ * for (CsvGroup group : aggregation.aggregate(reader)) {
+ * 	Real total = group.getReal(1);
+ * }
+ * </pre>
+ *
+ * The records are read in a single pass. By default they are aggregated by
+ * the threads of the common fork-join pool, each one over part of the
+ * records into its own groups, which are merged at the end (see
+ * {@link CsvReader#parallelStream()}).
+ *
+ * <p>
+ * The values of sums, minimums, maximums and averages are decimals, with a
+ * point or a comma as the decimal separator, and are computed exactly as
+ * {@link com.googlecode.jcobs.math.Real Real}s. Groups by a single integer,
+ * long or date field are looked up by their primitive values, without
+ * boxing them.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvAggregation {
+
+	private final List<GroupField> groupFields = new ArrayList<>();
+	private final List<CsvAggregate> aggregates = new ArrayList<>();
+	private boolean parallel = true;
+
+	/**
+	 * Adds a field to group the records by. Integer, long and date fields are
+	 * grouped by their converted values, string fields by the values as they
+	 * are in the file. The records with an empty value have a group of their
+	 * own.
+	 */
+	public void addGroupField(String fieldName, CsvFieldType fieldType) {
+		groupFields.add(new GroupField(fieldName, -1, fieldType));
+	}
+
+	public void addGroupField(int fieldIndex, CsvFieldType fieldType) {
+		groupFields.add(new GroupField(null, fieldIndex, fieldType));
+	}
+
+	public void addAggregate(CsvAggregate aggregate) {
+		aggregates.add(aggregate);
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Whether the records are aggregated by several threads (the default).
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Aggregates the records of the reader: all the records kept in memory,
+	 * or the next records of the other readers, moving the cursor to the end
+	 * of the file.
+	 *
+	 * @return the groups, in the order they first appear in the records.
+	 * @throws CsvFormatError
+	 *             if a value isn't a valid decimal.
+	 * @throws ArithmeticException
+	 *             if a sum overflows: the sums are exact, so their digits,
+	 *             with as many decimal places as the values have, must fit a
+	 *             long, like the numerator of a
+	 *             {@link com.googlecode.jcobs.math.Real}.
+	 */
+	public List<CsvGroup> aggregate(CsvReader reader) {
+		int[] keyFields = new int[groupFields.size()];
+		CsvFieldType[] keyTypes = new CsvFieldType[keyFields.length];
+		for (int i = 0; i < keyFields.length; ++i) {
+			GroupField field = groupFields.get(i);
+			keyFields[i] = field.fieldName != null ? reader.getFieldIndex(field.fieldName) : field.fieldIndex;
+			keyTypes[i] = field.fieldType;
+			reader.checkFieldIndex(keyFields[i]);
+		}
+		CsvAggregateFunction[] functions = new CsvAggregateFunction[aggregates.size()];
+		int[] valueFields = new int[functions.length];
+		for (int a = 0; a < functions.length; ++a) {
+			CsvAggregate aggregate = aggregates.get(a);
+			functions[a] = aggregate.getFunction();
+			if (functions[a] == CsvAggregateFunction.COUNT) {
+				valueFields[a] = -1;
+				continue;
+			}
+			String fieldName = aggregate.getFieldName();
+			valueFields[a] = fieldName != null ? reader.getFieldIndex(fieldName) : aggregate.getFieldIndex();
+			reader.checkFieldIndex(valueFields[a]);
+		}
+		Stream<CsvRecord> records = parallel ? reader.parallelStream() : reader.stream();
+		CsvGroupTable groups = records.collect(() -> new CsvGroupTable(keyFields, keyTypes, functions, valueFields),
+				CsvGroupTable::add, CsvGroupTable::merge);
+		return groups.toGroups();
+	}
+
+	private static final class GroupField {
+
+		private final String fieldName;
+		private final int fieldIndex;
+		private final CsvFieldType fieldType;
+
+		private GroupField(String fieldName, int fieldIndex, CsvFieldType fieldType) {
+			this.fieldName = fieldName;
+			this.fieldIndex = fieldIndex;
+			this.fieldType = fieldType;
+		}
+
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream or channel on a background thread, ahead of the
+ * consumer, so that reading (and decompressing) the source overlaps with
+ * parsing. The source is read into a few recycled buffers, handed over
+ * through a bounded queue: with two buffers, one is filled while the other is
+ * parsed. Channels are read into direct buffers.
+ *
+ * <p>
+ * Errors of the source are thrown by the next read of the consumer. The
+ * source is closed by the background thread when its end is reached, or by
+ * {@link #close()}, which also ends a read of the background thread blocked
+ * on the source: interrupting the thread is not enough for plain streams.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvAsyncInputStream extends InputStream {
+
+	static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+	static final int DEFAULT_CHUNK_COUNT = 4;
+
+	private final InputStream stream;
+	private final ReadableByteChannel channel;
+	private final BlockingQueue<Chunk> free;
+	private final BlockingQueue<Chunk> filled;
+	private final Thread thread;
+	private volatile boolean closed;
+	private Chunk current;
+
+	CsvAsyncInputStream(InputStream source) {
+		this(source, null, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+	}
+
+	CsvAsyncInputStream(ReadableByteChannel source, int chunkSize, int chunkCount) {
+		this(null, source, chunkSize, chunkCount);
+	}
+
+	private CsvAsyncInputStream(InputStream stream, ReadableByteChannel channel, int chunkSize, int chunkCount) {
+		this.stream = stream;
+		this.channel = channel;
+		this.free = new ArrayBlockingQueue<>(chunkCount);
+		this.filled = new ArrayBlockingQueue<>(chunkCount);
+		for (int i = 0; i < chunkCount; ++i) {
+			free.add(new Chunk(channel != null ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize)));
+		}
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produce();
+			}
+		}, "jcobs-read-ahead");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void produce() {
+		try {
+			while (!closed) {
+				Chunk chunk = free.take();
+				try {
+					if (channel != null) {
+						chunk.fill(channel);
+					} else {
+						chunk.fill(stream);
+					}
+				} catch (IOException | RuntimeException e) {
+					chunk.error = e;
+					chunk.last = true;
+				}
+				filled.put(chunk);
+				if (chunk.last) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			// Closed by the consumer
+		} finally {
+			try {
+				(channel != null ? channel : (Closeable) stream).close();
+			} catch (IOException e) {
+				// Already read, or not needed anymore
+			}
+		}
+	}
+
+	/**
+	 * Makes {@link #current} a chunk with data to read.
+	 *
+	 * @return <code>false</code> at the end of the source.
+	 */
+	private boolean nextChunk() throws IOException {
+		while (current == null || !current.buffer.hasRemaining()) {
+			if (closed) {
+				throw new IOException("Stream closed.");
+			}
+			if (current != null) {
+				if (current.last) {
+					return false;
+				}
+				free.add(current);
+			}
+			try {
+				current = filled.take();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			if (current.error instanceof IOException) {
+				throw (IOException) current.error;
+			}
+			if (current.error != null) {
+				throw (RuntimeException) current.error;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextChunk()) {
+			return -1;
+		}
+		return current.buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextChunk()) {
+			return -1;
+		}
+		int count = Math.min(len, current.buffer.remaining());
+		current.buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return current == null ? 0 : current.buffer.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			thread.interrupt();
+			(channel != null ? channel : (Closeable) stream).close();
+		}
+	}
+
+	private static class Chunk {
+
+		final ByteBuffer buffer;
+		/**
+		 * Whether the end of the source was reached.
+		 */
+		boolean last;
+		Exception error;
+
+		Chunk(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Reads the source until the chunk is full or its end is reached.
+		 */
+		void fill(ReadableByteChannel source) throws IOException {
+			buffer.clear();
+			while (buffer.hasRemaining()) {
+				if (source.read(buffer) == -1) {
+					last = true;
+					break;
+				}
+			}
+			buffer.flip();
+		}
+
+		void fill(InputStream source) throws IOException {
+			byte[] data = buffer.array();
+			int length = 0;
+			while (length < data.length) {
+				int count = source.read(data, length, data.length - length);
+				if (count == -1) {
+					last = true;
+					break;
+				}
+				length += count;
+			}
+			buffer.limit(length).position(0);
+		}
+
+	}
+
+}
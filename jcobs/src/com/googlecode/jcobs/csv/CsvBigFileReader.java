@@ -0,0 +1,214 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link CsvReader} that doesn't keep the file records in memory. The file is
+ * kept open and each call to {@link #next()} parses just one more line, so
+ * files of any size can be read using a constant amount of memory.
+ *
+ * <p>
+ * The records can only be navigated forward, once. The file is closed when the
+ * last record is reached, when {@link #clear()} is called or by an explicit
+ * call to {@link #close()}.
+ *
+ * <p>
+ * To read just the first records of an order, see
+ * {@link #top(int, String, CsvFieldType, boolean)}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvBigFileReader extends CsvReader implements Closeable {
+
+	private BufferedReader bufReader;
+	private String pendingLine;
+	private String[] currentRecord;
+	private int readCount;
+	/**
+	 * The records selected by {@link #top(int, int, CsvFieldType, boolean)},
+	 * in order, or <code>null</code>.
+	 */
+	private String[][] selection;
+	private int selectionIndex;
+
+	public CsvBigFileReader() {
+	}
+
+	@Override
+	public void clear() {
+		closeQuietly();
+		super.clear();
+		pendingLine = null;
+		currentRecord = null;
+		readCount = 0;
+		selection = null;
+	}
+
+	/**
+	 * Opens the file and reads its header (if any). The records are read on
+	 * demand by {@link #next()}.
+	 */
+	@Override
+	public void readFile(File file) throws IOException {
+		clear();
+		open(openReader(file));
+	}
+
+	/**
+	 * Reads the header of the stream (if any), like {@link #readFile(File)}.
+	 * Gzip compressed streams are decompressed on a background thread. The
+	 * stream is closed with the reader.
+	 */
+	@Override
+	public void read(InputStream in) throws IOException {
+		clear();
+		open(openReader(in));
+	}
+
+	private void open(BufferedReader reader) throws IOException {
+		bufReader = reader;
+		try {
+			String line = bufReader.readLine();
+			if (line == null) {
+				close();
+				return;
+			}
+			if (firstLineIsHeader) {
+				readHeader(line);
+			} else {
+				pendingLine = line;
+			}
+		} catch (IOException | RuntimeException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the remaining records, keeping only the first <code>n</code> in
+	 * the order of a field, like {@link CsvSortableReader#top(int, String,
+	 * CsvFieldType, boolean)}: the memory used is proportional to
+	 * <code>n</code>, not to the size of the file. Then {@link #next()} reads
+	 * the selected records, in order.
+	 *
+	 * @return the number of selected records: <code>n</code>, or all of them
+	 *         if there are fewer.
+	 */
+	public int top(int n, String fieldName, CsvFieldType fieldType, boolean asc) {
+		return top(n, getFieldIndex(fieldName), fieldType, asc);
+	}
+
+	public int top(int n, int fieldIndex, CsvFieldType fieldType, boolean asc) {
+		checkFieldIndex(fieldIndex);
+		CsvTopHeap heap = new CsvTopHeap(n, fieldType, asc);
+		for (int position = 0; next(); ++position) {
+			if (fieldType == CsvFieldType.STRING) {
+				heap.offer(position, currentRecord[fieldIndex], currentRecord);
+			} else {
+				boolean isNull = currentRecord[fieldIndex] == null;
+				heap.offer(position, isNull, isNull ? 0L : parsePrimitiveValue(currentRecord[fieldIndex], fieldType), currentRecord);
+			}
+		}
+		heap.sort();
+		selection = new String[heap.size()][];
+		for (int i = 0; i < selection.length; ++i) {
+			selection[i] = (String[]) heap.getRecord(i);
+		}
+		selectionIndex = 0;
+		currentIndex = -1;
+		return selection.length;
+	}
+
+	@Override
+	public boolean next() {
+		if (selection != null) {
+			currentRecord = selectionIndex < selection.length ? selection[selectionIndex++] : null;
+			if (currentRecord == null) {
+				return false;
+			}
+			++currentIndex;
+			return true;
+		}
+		String[] record = null;
+		while (record == null) {
+			String line = pendingLine;
+			pendingLine = null;
+			if (line == null) {
+				line = readLine();
+			}
+			if (line == null) {
+				currentRecord = null;
+				return false;
+			}
+			// Null when rejected by a filter
+			record = parseRecord(line);
+		}
+		currentRecord = record;
+		++currentIndex;
+		++readCount;
+		return true;
+	}
+
+	private String readLine() {
+		if (bufReader == null) {
+			return null;
+		}
+		try {
+			String line = bufReader.readLine();
+			if (line == null) {
+				close();
+			}
+			return line;
+		} catch (IOException e) {
+			closeQuietly();
+			throw new CsvFormatError(e);
+		}
+	}
+
+	@Override
+	protected String getValue(int fieldIndex) {
+		if (currentRecord == null) {
+			throw new IllegalStateException("There's no current record.");
+		}
+		return currentRecord[fieldIndex];
+	}
+
+	/**
+	 * As the records are not kept in memory, returns just the number of
+	 * records read so far.
+	 */
+	@Override
+	public int recordCount() {
+		return readCount;
+	}
+
+	@Override
+	protected boolean keepsRecords() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (bufReader != null) {
+			try {
+				bufReader.close();
+			} finally {
+				bufReader = null;
+			}
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			// Nothing to do, the reader is being discarded anyway.
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.googlecode.jcobs.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits the lines of a CSV file held in a {@link ByteBuffer} into fragments,
+ * without creating any object. Each fragment is kept as a slice (start and end
+ * positions) of the buffer and is only decoded into a {@code String} on
+ * demand.
+ *
+ * <p>
+ * Follows the same rules of {@code CsvReader.readFragments(String)}: records
+ * end at '\n', '\r' or "\r\n", and the separator, delimiter and delimiter
+ * escape must be ASCII characters, so the charset must be ASCII compatible
+ * (ISO-8859-1, windows-1252, UTF-8, etc).
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvByteTokenizer {
+
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private final byte separator;
+	private final byte delimiter;
+	private final byte delimiterEscape;
+	private final Charset charset;
+
+	private ByteBuffer buffer;
+	private ByteBuffer view;
+	private int count;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private boolean[] escaped = new boolean[16];
+	private byte[] scratch = new byte[256];
+
+	CsvByteTokenizer(char separator, char delimiter, char delimiterEscape, Charset charset) {
+		this.separator = toAscii(separator);
+		this.delimiter = toAscii(delimiter);
+		this.delimiterEscape = toAscii(delimiterEscape);
+		this.charset = charset;
+	}
+
+	private static byte toAscii(char c) {
+		if (c > 127) {
+			throw new IllegalStateException("Only ASCII separators and delimiters are supported: '" + c + "'.");
+		}
+		return (byte) c;
+	}
+
+	/**
+	 * Reads the record that starts at the given position of the buffer.
+	 *
+	 * @param eof
+	 *            whether the buffer limit is the end of the file. Otherwise, a
+	 *            record that reaches the limit is considered incomplete.
+	 * @return the position of the next record, or -1 if there's no complete
+	 *         record in the buffer starting at the given position.
+	 */
+	int tokenize(ByteBuffer buffer, int pos, boolean eof) {
+		if (this.buffer != buffer) {
+			this.buffer = buffer;
+			this.view = buffer.duplicate();
+		}
+		count = 0;
+		int limit = buffer.limit();
+		if (pos >= limit) {
+			return -1;
+		}
+		int start = pos;
+		boolean insideStr = false;
+		boolean special = false;
+		int i = pos;
+		while (i < limit) {
+			byte b = buffer.get(i);
+			if (b == LF || b == CR) {
+				addFragment(start, i, special);
+				if (b == CR) {
+					if (i + 1 < limit) {
+						if (buffer.get(i + 1) == LF) {
+							return i + 2;
+						}
+					} else if (!eof) {
+						return -1;
+					}
+				}
+				return i + 1;
+			}
+			if (insideStr && b == delimiterEscape && i + 1 < limit && buffer.get(i + 1) == delimiter) {
+				special = true;
+				i += 2;
+				continue;
+			}
+			if (b == delimiter) {
+				insideStr = !insideStr;
+				special = true;
+			} else if (b == separator && !insideStr) {
+				addFragment(start, i, special);
+				start = i + 1;
+				special = false;
+			}
+			++i;
+		}
+		if (!eof) {
+			return -1;
+		}
+		addFragment(start, limit, special);
+		return limit;
+	}
+
+	private void addFragment(int start, int end, boolean special) {
+		if (count == starts.length) {
+			int capacity = count * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			escaped = Arrays.copyOf(escaped, capacity);
+		}
+		starts[count] = start;
+		ends[count] = end;
+		escaped[count] = special;
+		++count;
+	}
+
+	int fragmentCount() {
+		return count;
+	}
+
+	int start(int fragment) {
+		return starts[fragment];
+	}
+
+	int end(int fragment) {
+		return ends[fragment];
+	}
+
+	/**
+	 * Whether the fragment has no content. Empty fragments are read as
+	 * <code>null</code> values.
+	 */
+	boolean isEmpty(int fragment) {
+		if (!escaped[fragment]) {
+			return starts[fragment] == ends[fragment];
+		}
+		return unescape(fragment) == 0;
+	}
+
+	/**
+	 * Decodes the fragment into a {@code String}, removing the delimiters and
+	 * replacing the escaped delimiters. Never returns <code>null</code>.
+	 */
+	String getFragment(int fragment) {
+		int length;
+		if (escaped[fragment]) {
+			length = unescape(fragment);
+		} else {
+			length = ends[fragment] - starts[fragment];
+			if (length == 0) {
+				return "";
+			}
+			ensureScratch(length);
+			view.position(starts[fragment]);
+			view.get(scratch, 0, length);
+		}
+		return new String(scratch, 0, length, charset);
+	}
+
+	/**
+	 * Parses the fragment as a decimal number, like {@link Long#parseLong(String)},
+	 * reading the digits straight from the buffer. Only unusual fragments
+	 * (delimited, too long, with non ASCII digits, etc) are decoded first.
+	 */
+	long parseLong(int fragment) {
+		int start = starts[fragment];
+		int end = ends[fragment];
+		if (!escaped[fragment] && start < end) {
+			boolean negative = buffer.get(start) == '-';
+			int pos = negative || buffer.get(start) == '+' ? start + 1 : start;
+			// 18 digits can't overflow a long
+			if (pos < end && end - pos <= 18) {
+				long value = 0;
+				for (; pos < end; ++pos) {
+					int digit = buffer.get(pos) - '0';
+					if (digit < 0 || digit > 9) {
+						break;
+					}
+					value = value * 10 + digit;
+				}
+				if (pos == end) {
+					return negative ? -value : value;
+				}
+			}
+		}
+		return Long.parseLong(getFragment(fragment));
+	}
+
+	private int unescape(int fragment) {
+		int start = starts[fragment];
+		int end = ends[fragment];
+		ensureScratch(end - start);
+		int length = 0;
+		boolean insideStr = false;
+		for (int i = start; i < end; ++i) {
+			byte b = buffer.get(i);
+			if (insideStr && b == delimiterEscape && i + 1 < end && buffer.get(i + 1) == delimiter) {
+				scratch[length++] = delimiter;
+				++i;
+				continue;
+			}
+			if (b == delimiter) {
+				insideStr = !insideStr;
+				continue;
+			}
+			scratch[length++] = b;
+		}
+		return length;
+	}
+
+	private void ensureScratch(int length) {
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A column of a CSV file stored in memory. Used by {@link CsvReader} when it's
+ * set to columnar storage: instead of one {@code String[]} per record, each
+ * field of the file is kept in a single column object, typed according to the
+ * declared {@link CsvFieldType}.
+ *
+ * <p>
+ * The typed columns keep a bitmap of the <code>null</code> values.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+abstract class CsvColumn {
+
+	protected static final int INITIAL_CAPACITY = 16;
+
+	protected int size;
+	private long[] nulls = new long[1];
+
+	static CsvColumn create(CsvFieldType type, CsvReader reader) {
+		switch (type) {
+		case STRING:
+			return new CsvStringColumn();
+		case INTEGER:
+			return new CsvIntegerColumn();
+		case LONG:
+			return new CsvLongColumn();
+		case UTIL_DATE:
+			return new CsvDateColumn(reader);
+		default:
+			throw new CsvFormatError("Not supported field type: '" + type + "'.");
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	abstract CsvFieldType getType();
+
+	/**
+	 * Appends a value read from the file (<code>null</code> for empty
+	 * fragments), converting it to the column type.
+	 */
+	abstract void add(String value);
+
+	/**
+	 * Returns the value as it would be read from the file.
+	 */
+	abstract String getString(int row);
+
+	/**
+	 * Returns the value as an object of the column type.
+	 */
+	abstract Object getValue(int row);
+
+	/**
+	 * Compares the values of two rows, according to the column type. Nulls come
+	 * first.
+	 */
+	abstract int compare(int row1, int row2);
+
+	/**
+	 * Releases the extra capacity and any structure that's only needed while
+	 * values are being added.
+	 */
+	abstract void trim();
+
+	/**
+	 * Writes the values to a {@link CsvSnapshot}.
+	 */
+	abstract void write(DataOutput out) throws IOException;
+
+	/**
+	 * Replaces the values by the ones written by {@link #write(DataOutput)},
+	 * read from the snapshot.
+	 */
+	abstract void read(CsvSnapshot.Input in, int count) throws IOException;
+
+	boolean isNull(int row) {
+		return (nulls[row >>> 6] & (1L << row)) != 0L;
+	}
+
+	protected void setNull(int row) {
+		int word = row >>> 6;
+		if (word >= nulls.length) {
+			nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+		}
+		nulls[word] |= 1L << row;
+	}
+
+	protected void trimNulls() {
+		nulls = Arrays.copyOf(nulls, (size >>> 6) + 1);
+	}
+
+	protected void writeNulls(DataOutput out) throws IOException {
+		int words = (size >>> 6) + 1;
+		for (int i = 0; i < words; ++i) {
+			out.writeLong(i < nulls.length ? nulls[i] : 0L);
+		}
+	}
+
+	protected void readNulls(CsvSnapshot.Input in, int count) throws IOException {
+		nulls = new long[(count >>> 6) + 1];
+		in.get(nulls);
+	}
+
+	protected int compareNulls(int row1, int row2) {
+		return (isNull(row1) ? 0 : 1) - (isNull(row2) ? 0 : 1);
+	}
+
+	protected static int newCapacity(int capacity) {
+		return capacity + (capacity >> 1) + 1;
+	}
+
+}
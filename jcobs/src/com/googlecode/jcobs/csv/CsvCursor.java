@@ -0,0 +1,247 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Date;
+
+/**
+ * A position over the records of a {@link CsvDataset}, created by
+ * {@link CsvDataset#cursor()}. It navigates the records like a
+ * {@link CsvReader} does, independently of the other cursors over the same
+ * dataset. A cursor must be used by a single thread.
+ *
+ * <p>
+ * Cursors may navigate the records in the order of a sort, see
+ * {@link #sort(CsvSortField...)}. The orders are computed once and shared by
+ * all the cursors of the dataset, so several cursors can read the same
+ * records "by codigo" and "by nome" without copying or sorting them again.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvCursor {
+
+	private final CsvReader reader;
+	private int currentIndex = -1;
+	/**
+	 * The order being navigated, or <code>null</code> for the file order.
+	 */
+	private CsvOrder order;
+	/**
+	 * The rank of the current record in {@link #order}.
+	 */
+	private int rank = -1;
+	/**
+	 * The modification count of the reader when {@link #order} was computed.
+	 */
+	private int orderModCount;
+
+	CsvCursor(CsvReader reader) {
+		this.reader = reader;
+	}
+
+	public void sort(String fieldName, CsvFieldType fieldType, boolean asc) {
+		sort(new CsvSortField(fieldName, fieldType, asc));
+	}
+
+	public void sort(int fieldIndex, CsvFieldType fieldType, boolean asc) {
+		sort(new CsvSortField(fieldIndex, fieldType, asc));
+	}
+
+	/**
+	 * Navigates the records in the order of the given fields, like
+	 * {@link CsvSortableReader#sort(CsvSortField...)}, with the cursor before
+	 * the first record. The records are sorted only the first time an order
+	 * is asked for by any cursor of the dataset.
+	 */
+	public void sort(CsvSortField... sortFields) {
+		order = reader.getOrder(sortFields);
+		orderModCount = reader.modCount;
+		rank = -1;
+		currentIndex = -1;
+	}
+
+	/**
+	 * Goes back to the order of the file, with the cursor before the first
+	 * record.
+	 */
+	public void clearSort() {
+		order = null;
+		currentIndex = -1;
+	}
+
+	/**
+	 * Reads the next record in the order of the last sort, or of the file.
+	 * After {@link #moveTo(int)} or {@link #lookup(CsvIndex, Object...)}, goes
+	 * on from the record found. Like {@link CsvSortableReader#next()}, drops a
+	 * sort computed before the records changed.
+	 */
+	public boolean next() {
+		if (order != null && orderModCount != reader.modCount) {
+			order = null;
+		}
+		if (order != null) {
+			if (currentIndex != -1 && (rank < 0 || order.get(rank) != currentIndex)) {
+				// Moved by a position
+				rank = order.rankOf(currentIndex);
+			}
+			if (rank >= order.size() - 1) {
+				return false;
+			}
+			currentIndex = order.get(++rank);
+			return true;
+		}
+		if (currentIndex < reader.recordCount() - 1) {
+			++currentIndex;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the cursor to the record at the given position, see
+	 * {@link CsvReader#moveTo(int)}.
+	 */
+	public void moveTo(int recordIndex) {
+		if (recordIndex < 0 || recordIndex >= reader.recordCount()) {
+			throw new IllegalArgumentException(String.format("Invalid record index: %d. Max is %s.", recordIndex,
+					reader.recordCount() - 1));
+		}
+		currentIndex = recordIndex;
+	}
+
+	/**
+	 * Moves the cursor to the first record with the given key, see
+	 * {@link CsvReader#lookup(CsvIndex, Object...)}. The index must have been
+	 * created by the dataset.
+	 *
+	 * @return <code>false</code> if there's no record with the key. The cursor
+	 *         is not moved in this case.
+	 */
+	public boolean lookup(CsvIndex index, Object... key) {
+		if (index.reader != reader) {
+			throw new IllegalArgumentException("The index was created by another dataset.");
+		}
+		int recordIndex = index.find(key);
+		if (recordIndex == -1) {
+			return false;
+		}
+		currentIndex = recordIndex;
+		return true;
+	}
+
+	/**
+	 * Returns the position of the current record, or -1 before the first one.
+	 */
+	public int getIndex() {
+		return currentIndex;
+	}
+
+	public int recordCount() {
+		return reader.recordCount();
+	}
+
+	/**
+	 * Returns a view of the current record, which stays valid after the
+	 * cursor is moved.
+	 */
+	public CsvRecord getRecord() {
+		checkCurrent();
+		return new CsvRecord(reader, currentIndex);
+	}
+
+	public String getString(String fieldName) {
+		return getString(reader.getFieldIndex(fieldName));
+	}
+
+	public String getString(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.STRING);
+	}
+
+	public Integer getInteger(String fieldName) {
+		return getInteger(reader.getFieldIndex(fieldName));
+	}
+
+	public Integer getInteger(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.INTEGER);
+	}
+
+	public Long getLong(String fieldName) {
+		return getLong(reader.getFieldIndex(fieldName));
+	}
+
+	public Long getLong(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.LONG);
+	}
+
+	public Date getDate(String fieldName) {
+		return getDate(reader.getFieldIndex(fieldName));
+	}
+
+	public Date getDate(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.UTIL_DATE);
+	}
+
+	/**
+	 * @see CsvReader#getIntValue(String)
+	 */
+	public int getIntValue(String fieldName) {
+		return getIntValue(reader.getFieldIndex(fieldName));
+	}
+
+	public int getIntValue(int fieldIndex) {
+		return (int) getPrimitiveValue(fieldIndex, CsvFieldType.INTEGER);
+	}
+
+	/**
+	 * @see CsvReader#getLongValue(String)
+	 */
+	public long getLongValue(String fieldName) {
+		return getLongValue(reader.getFieldIndex(fieldName));
+	}
+
+	public long getLongValue(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.LONG);
+	}
+
+	/**
+	 * @see CsvReader#getDateMillis(String)
+	 */
+	public long getDateMillis(String fieldName) {
+		return getDateMillis(reader.getFieldIndex(fieldName));
+	}
+
+	public long getDateMillis(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.UTIL_DATE);
+	}
+
+	public boolean isNull(String fieldName) {
+		return isNull(reader.getFieldIndex(fieldName));
+	}
+
+	/**
+	 * Whether the value is empty, without converting it.
+	 */
+	public boolean isNull(int fieldIndex) {
+		checkCurrent();
+		reader.checkFieldIndex(fieldIndex);
+		return reader.isNullValue(currentIndex, fieldIndex);
+	}
+
+	private <T> T getAsType(int fieldIndex, CsvFieldType fieldType) {
+		checkCurrent();
+		reader.checkFieldIndex(fieldIndex);
+		return reader.getAsType(currentIndex, fieldIndex, fieldType);
+	}
+
+	private long getPrimitiveValue(int fieldIndex, CsvFieldType fieldType) {
+		checkCurrent();
+		reader.checkFieldIndex(fieldIndex);
+		return reader.getPrimitiveValue(currentIndex, fieldIndex, fieldType);
+	}
+
+	private void checkCurrent() {
+		if (currentIndex == -1) {
+			throw new IllegalStateException("There's no current record.");
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.stream.Stream;
+
+/**
+ * The records loaded by a {@link CsvReader}, shared by several threads,
+ * created by {@link CsvReader#toDataset()}. The records are loaded once and
+ * can't be changed anymore; each thread navigates them with its own
+ * {@link CsvCursor}.
+ *
+ * <pre>
+ * CsvReader reader = new CsvReader();
+ * reader.readFile(file);
+ * CsvDataset dataset = reader.toDataset();
+ * CsvIndex index = dataset.createIndex(&quot;codigo&quot;, CsvFieldType.INTEGER);
+ * // On each thread
+ * CsvCursor cursor = dataset.cursor();
+ * if (cursor.lookup(index, 11002)) {
+ * 	String nome = cursor.getString(&quot;nome&quot;);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Since the records don't change, the indexes created over the dataset are
+ * valid for as long as it's used, and may be shared by the threads too.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvDataset {
+
+	private final CsvReader reader;
+
+	CsvDataset(CsvReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Creates a cursor over the records, placed before the first one. Cursors
+	 * are cheap, but each one must be used by a single thread.
+	 */
+	public CsvCursor cursor() {
+		return new CsvCursor(reader);
+	}
+
+	public int recordCount() {
+		return reader.recordCount();
+	}
+
+	public int fieldCount() {
+		return reader.fieldCount();
+	}
+
+	/**
+	 * @see CsvReader#createIndex(String, CsvFieldType)
+	 */
+	public CsvIndex createIndex(String fieldName, CsvFieldType fieldType) {
+		return reader.createIndex(fieldName, fieldType);
+	}
+
+	/**
+	 * @see CsvReader#createIndex(int, CsvFieldType)
+	 */
+	public CsvIndex createIndex(int fieldIndex, CsvFieldType fieldType) {
+		return reader.createIndex(fieldIndex, fieldType);
+	}
+
+	/**
+	 * @see CsvReader#createIndex(String...)
+	 */
+	public CsvIndex createIndex(String... fieldNames) {
+		return reader.createIndex(fieldNames);
+	}
+
+	/**
+	 * @see CsvReader#stream()
+	 */
+	public Stream<CsvRecord> stream() {
+		return reader.stream();
+	}
+
+	/**
+	 * @see CsvReader#parallelStream()
+	 */
+	public Stream<CsvRecord> parallelStream() {
+		return reader.parallelStream();
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Date;
+
+/**
+ * A {@link CsvColumn} of {@link CsvFieldType#UTIL_DATE} values, stored as a
+ * <code>long[]</code> of milliseconds since the epoch. The values are parsed
+ * and formatted using the date format of the reader.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvDateColumn extends CsvLongColumn {
+
+	private final CsvReader reader;
+
+	CsvDateColumn(CsvReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	CsvFieldType getType() {
+		return CsvFieldType.UTIL_DATE;
+	}
+
+	@Override
+	protected long parse(String value) {
+		return ((Date) reader.convertValue(value, CsvFieldType.UTIL_DATE)).getTime();
+	}
+
+	@Override
+	String getString(int row) {
+		return isNull(row) ? null : reader.formatValue(getValue(row), CsvFieldType.UTIL_DATE);
+	}
+
+	@Override
+	Object getValue(int row) {
+		return isNull(row) ? null : new Date(getLong(row));
+	}
+
+}
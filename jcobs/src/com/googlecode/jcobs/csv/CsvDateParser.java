@@ -0,0 +1,363 @@
+package com.googlecode.jcobs.csv;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Parses and formats the dates of a {@link CsvReader}, giving the same results
+ * of a (lenient) {@link SimpleDateFormat} with the same pattern, but much
+ * faster. Unlike {@link SimpleDateFormat}, it's thread-safe.
+ *
+ * <p>
+ * Patterns made only of numeric fields (<code>yyyy</code>, <code>M</code>,
+ * <code>d</code>, <code>H</code>, <code>m</code>, <code>s</code> and
+ * <code>S</code>) and literals are compiled: the digits are read straight from
+ * the string and the date is computed arithmetically, using a cache of the
+ * local midnight of each day to apply the time zone. Values the compiled
+ * pattern can't read with certainty (spaces before numbers, signs, too many
+ * digits, parse errors, etc), other patterns, days with time zone transitions
+ * and years before 1600 are handed to a {@link SimpleDateFormat} or a
+ * {@link Calendar} of the current thread.
+ *
+ * <p>
+ * The last parsed strings are cached, as CSV files usually repeat the same
+ * dates many times.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvDateParser {
+
+	private static final int CACHE_SIZE = 16 * 1024;
+	private static final int DAY_CACHE_SIZE = 16 * 1024;
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private static final int MAX_DIGITS = 9;
+	/**
+	 * Years before this one may fall before the Gregorian calendar cutover.
+	 */
+	private static final int MIN_COMPUTED_YEAR = 1600;
+	private static final long UNPARSED = Long.MIN_VALUE;
+
+	private static final String FIELD_LETTERS = "yMdHmsS";
+	private static final int YEAR = 0;
+	private static final int MONTH = 1;
+	private static final int DAY = 2;
+	private static final int HOUR = 3;
+	private static final int MINUTE = 4;
+	private static final int SECOND = 5;
+	private static final int MILLISECOND = 6;
+
+	private final String pattern;
+	private final TimeZone timeZone;
+	private final SimpleDateFormat prototype;
+	/**
+	 * The compiled pattern, or <code>null</code> if it's not supported.
+	 */
+	private final Element[] elements;
+	private final ThreadLocal<SimpleDateFormat> formats = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return (SimpleDateFormat) prototype.clone();
+		}
+	};
+	private final ThreadLocal<Calendar> calendars = new ThreadLocal<Calendar>() {
+		@Override
+		protected Calendar initialValue() {
+			return (Calendar) prototype.getCalendar().clone();
+		}
+	};
+	// Entries are immutable, so the caches may be shared by the threads
+	private final Entry[] recent = new Entry[CACHE_SIZE];
+	private final Day[] days = new Day[DAY_CACHE_SIZE];
+
+	CsvDateParser(String pattern) {
+		this(pattern, TimeZone.getDefault());
+	}
+
+	CsvDateParser(String pattern, TimeZone timeZone) {
+		this.pattern = pattern;
+		this.timeZone = timeZone;
+		this.prototype = new SimpleDateFormat(pattern);
+		prototype.setTimeZone(timeZone);
+		this.elements = prototype.getCalendar() instanceof GregorianCalendar ? compile(pattern) : null;
+	}
+
+	String getPattern() {
+		return pattern;
+	}
+
+	TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	/**
+	 * Whether the pattern is compiled. Otherwise, all the dates are parsed by
+	 * a {@link SimpleDateFormat}.
+	 */
+	boolean isCompiled() {
+		return elements != null;
+	}
+
+	Date parse(String text) throws ParseException {
+		return new Date(parseMillis(text));
+	}
+
+	/**
+	 * Parses the date, returning it as milliseconds since the epoch.
+	 */
+	long parseMillis(String text) throws ParseException {
+		int slot = text.hashCode() & (CACHE_SIZE - 1);
+		Entry entry = recent[slot];
+		if (entry != null && entry.text.equals(text)) {
+			return entry.millis;
+		}
+		long millis = elements != null ? parseCompiled(text) : UNPARSED;
+		if (millis == UNPARSED) {
+			millis = formats.get().parse(text).getTime();
+		}
+		recent[slot] = new Entry(text, millis);
+		return millis;
+	}
+
+	String format(Date date) {
+		return formats.get().format(date);
+	}
+
+	/**
+	 * Splits the pattern into fields and literals, following the rules of
+	 * {@link SimpleDateFormat}.
+	 *
+	 * @return <code>null</code> if the pattern has other fields.
+	 */
+	private static Element[] compile(String pattern) {
+		List<Element> result = new ArrayList<>();
+		boolean[] used = new boolean[FIELD_LETTERS.length()];
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+					literal.append(c);
+					i += 2;
+					continue;
+				}
+				for (++i; i < pattern.length(); ++i) {
+					if (pattern.charAt(i) == '\'') {
+						if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+							literal.append('\'');
+							++i;
+							continue;
+						}
+						break;
+					}
+					literal.append(pattern.charAt(i));
+				}
+				++i;
+				continue;
+			}
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int count = 1;
+				while (i + count < pattern.length() && pattern.charAt(i + count) == c) {
+					++count;
+				}
+				int field = FIELD_LETTERS.indexOf(c);
+				// Two digit years are adjusted to a century, months with 3 or more letters are names
+				if (field == -1 || used[field] || (field == YEAR && count <= 2) || (field == MONTH && count >= 3)) {
+					return null;
+				}
+				used[field] = true;
+				if (literal.length() > 0) {
+					result.add(new Element(literal.toString()));
+					literal.setLength(0);
+				}
+				result.add(new Element(field, count));
+				i += count;
+				continue;
+			}
+			literal.append(c);
+			++i;
+		}
+		if (literal.length() > 0) {
+			result.add(new Element(literal.toString()));
+		}
+		Element[] compiled = result.toArray(new Element[result.size()]);
+		for (int e = 0; e < compiled.length; ++e) {
+			if (compiled[e].field == -1 || e + 1 == compiled.length) {
+				continue;
+			}
+			Element following = compiled[e + 1];
+			if (following.field != -1) {
+				// Abutting fields read exactly the pattern count of digits
+				compiled[e] = new Element(compiled[e].field, compiled[e].count, true);
+			} else if (Character.isLetterOrDigit(following.literal.charAt(0))) {
+				// Would be read as part of the number (digits, exponent, etc)
+				return null;
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * @return the date, or {@link #UNPARSED} if the text must be parsed by
+	 *         {@link SimpleDateFormat}.
+	 */
+	private long parseCompiled(String text) {
+		int[] values = { 1970, 1, 1, 0, 0, 0, 0 };
+		int pos = 0;
+		int length = text.length();
+		for (Element element : elements) {
+			if (element.field == -1) {
+				if (!text.startsWith(element.literal, pos)) {
+					return UNPARSED;
+				}
+				pos += element.literal.length();
+				continue;
+			}
+			int start = pos;
+			int end = element.fixedWidth ? pos + element.count : length;
+			if (end > length) {
+				return UNPARSED;
+			}
+			int value = 0;
+			while (pos < end) {
+				char c = text.charAt(pos);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				value = value * 10 + (c - '0');
+				if (++pos - start > MAX_DIGITS) {
+					return UNPARSED;
+				}
+			}
+			if (pos == start || (element.fixedWidth && pos != end)) {
+				return UNPARSED;
+			}
+			values[element.field] = value;
+		}
+		if (values[YEAR] < MIN_COMPUTED_YEAR) {
+			return computeByCalendar(values);
+		}
+		// Lenient, like the calendar: months and days beyond their limits are carried over
+		long year = values[YEAR];
+		int month = values[MONTH] - 1;
+		if (month < 0) {
+			year -= 1;
+			month += 12;
+		} else {
+			year += month / 12;
+			month %= 12;
+		}
+		long epochDay = daysFromCivil(year, month + 1, 1) + values[DAY] - 1;
+		long localMillis = epochDay * DAY_MILLIS + ((values[HOUR] * 60L + values[MINUTE]) * 60L + values[SECOND]) * 1000L + values[MILLISECOND];
+		long localDay = localMillis >= 0 ? localMillis / DAY_MILLIS : (localMillis + 1) / DAY_MILLIS - 1;
+		Day day = day(localDay);
+		if (!day.constantOffset) {
+			return computeByCalendar(values);
+		}
+		return day.midnight + (localMillis - localDay * DAY_MILLIS);
+	}
+
+	private Day day(long localDay) {
+		int slot = (int) localDay & (DAY_CACHE_SIZE - 1);
+		Day day = days[slot];
+		if (day != null && day.localDay == localDay) {
+			return day;
+		}
+		Calendar calendar = calendars.get();
+		calendar.clear();
+		calendar.set(1970, Calendar.JANUARY, (int) (1 + localDay));
+		long midnight = calendar.getTimeInMillis();
+		int offset = timeZone.getOffset(midnight);
+		// The offset doesn't change during the day, and midnight isn't skipped
+		boolean constantOffset = localDay * DAY_MILLIS - offset == midnight && timeZone.getOffset(midnight + DAY_MILLIS) == offset;
+		day = new Day(localDay, midnight, constantOffset);
+		days[slot] = day;
+		return day;
+	}
+
+	private long computeByCalendar(int[] values) {
+		Calendar calendar = calendars.get();
+		calendar.clear();
+		calendar.set(values[YEAR], values[MONTH] - 1, values[DAY], values[HOUR], values[MINUTE], values[SECOND]);
+		calendar.set(Calendar.MILLISECOND, values[MILLISECOND]);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date of the proleptic Gregorian calendar.
+	 */
+	private static long daysFromCivil(long year, int month, int day) {
+		if (month <= 2) {
+			--year;
+		}
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static class Element {
+
+		/**
+		 * The index in {@link #FIELD_LETTERS}, or -1 for literals.
+		 */
+		final int field;
+		final int count;
+		final boolean fixedWidth;
+		final String literal;
+
+		Element(int field, int count) {
+			this(field, count, false);
+		}
+
+		Element(int field, int count, boolean fixedWidth) {
+			this.field = field;
+			this.count = count;
+			this.fixedWidth = fixedWidth;
+			this.literal = null;
+		}
+
+		Element(String literal) {
+			this.field = -1;
+			this.count = 0;
+			this.fixedWidth = false;
+			this.literal = literal;
+		}
+
+	}
+
+	private static class Entry {
+
+		final String text;
+		final long millis;
+
+		Entry(String text, long millis) {
+			this.text = text;
+			this.millis = millis;
+		}
+
+	}
+
+	private static class Day {
+
+		final long localDay;
+		final long midnight;
+		final boolean constantOffset;
+
+		Day(long localDay, long midnight, boolean constantOffset) {
+			this.localDay = localDay;
+			this.midnight = midnight;
+			this.constantOffset = constantOffset;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.googlecode.jcobs.csv;
+
+import java.math.BigDecimal;
+
+import com.googlecode.jcobs.math.Real;
+
+/**
+ * A mutable exact decimal, kept as an unscaled long and a scale, used to
+ * aggregate the values of a field without creating a {@link Real} for each
+ * one. A sum must fit the long with the greatest scale of the values added,
+ * otherwise an {@link ArithmeticException} is thrown, just like {@link Real}
+ * does on overflow.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+final class CsvDecimal {
+
+	private static final int MAX_SCALE = 18;
+	private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i <= MAX_SCALE; ++i) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private long unscaled;
+	private int scale;
+
+	/**
+	 * Parses a decimal value like "-1234.56", with a point or a comma as the
+	 * decimal separator and no grouping separators.
+	 */
+	void parse(String value) {
+		int length = value.length();
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+			negative = value.charAt(0) == '-';
+			++i;
+		}
+		long result = 0;
+		int digits = 0;
+		int point = -1;
+		for (; i < length; ++i) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (result > (Long.MAX_VALUE - 9) / 10) {
+					throw new CsvFormatError("Decimal value out of range: '" + value + "'.");
+				}
+				result = result * 10 + (c - '0');
+				++digits;
+			} else if ((c == '.' || c == ',') && point == -1) {
+				point = digits;
+			} else {
+				throw new CsvFormatError("Not a decimal value: '" + value + "'.");
+			}
+		}
+		if (digits == 0) {
+			throw new CsvFormatError("Not a decimal value: '" + value + "'.");
+		}
+		int resultScale = point == -1 ? 0 : digits - point;
+		if (resultScale > MAX_SCALE) {
+			throw new CsvFormatError("Decimal value out of range: '" + value + "'.");
+		}
+		unscaled = negative ? -result : result;
+		scale = resultScale;
+	}
+
+	void set(CsvDecimal other) {
+		unscaled = other.unscaled;
+		scale = other.scale;
+	}
+
+	/**
+	 * Adds another value, keeping the greatest scale of both.
+	 *
+	 * @throws ArithmeticException
+	 *             if the sum doesn't fit a long with that scale.
+	 */
+	void add(CsvDecimal other) {
+		int resultScale = Math.max(scale, other.scale);
+		try {
+			long value = Math.multiplyExact(unscaled, POWERS_OF_TEN[resultScale - scale]);
+			long otherValue = Math.multiplyExact(other.unscaled, POWERS_OF_TEN[resultScale - other.scale]);
+			unscaled = Math.addExact(value, otherValue);
+		} catch (ArithmeticException e) {
+			throw new ArithmeticException("Numeric overflow");
+		}
+		scale = resultScale;
+	}
+
+	/**
+	 * Compares two values.
+	 */
+	int compareTo(CsvDecimal other) {
+		if (scale == other.scale) {
+			return Long.compare(unscaled, other.unscaled);
+		}
+		try {
+			if (scale < other.scale) {
+				return Long.compare(Math.multiplyExact(unscaled, POWERS_OF_TEN[other.scale - scale]), other.unscaled);
+			}
+			return Long.compare(unscaled, Math.multiplyExact(other.unscaled, POWERS_OF_TEN[scale - other.scale]));
+		} catch (ArithmeticException e) {
+			return BigDecimal.valueOf(unscaled, scale).compareTo(BigDecimal.valueOf(other.unscaled, other.scale));
+		}
+	}
+
+	Real toReal() {
+		return new Real(unscaled, POWERS_OF_TEN[scale]);
+	}
+
+}
@@ -0,0 +1,547 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts CSV files bigger than the available memory. The file records are read
+ * in runs that fit in the memory budget (see {@link #setMemoryBudget(long)}).
+ * Each run is sorted in memory and spilled to a temporary file, then the runs
+ * are merged while navigating through the records with {@link #next()}, or
+ * written to a new CSV file with {@link #writeFile(File)}. At most
+ * {@link #MAX_MERGE_RUNS} runs are open at once: if there are more, they are
+ * first merged in groups into bigger runs, in as many passes as needed. Each
+ * temporary file
+ * is deleted once its run is merged, and the remaining ones by
+ * {@link #close()}, which must be called if the records are not read to the
+ * end.
+ *
+ * <p>
+ * The order is the same of {@link CsvSortableReader}: nulls come first and the
+ * sort is stable. If the whole file fits in the memory budget, nothing is
+ * written to disk.
+ *
+ * <pre>
+ * CsvExternalSortReader reader = new CsvExternalSortReader();
+ * reader.setSortField(&quot;codigo&quot;, CsvFieldType.INTEGER, true);
+ * reader.readFile(file);
+ * while (reader.next()) {
+ * 	...
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvExternalSortReader extends CsvReader implements Closeable {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	public static final int MAX_MERGE_RUNS = 64;
+
+	private static final Charset RUN_CHARSET = Charset.forName("UTF-8");
+	private static final int MAX_RUN_BUFFER_SIZE = 1024 * 1024;
+
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private int maxMergeRuns = MAX_MERGE_RUNS;
+	private File tempDirectory;
+	private String sortFieldName;
+	private int sortFieldIndex = -1;
+	private CsvFieldType sortFieldType;
+	private boolean asc;
+
+	private List<String> fieldNames = new ArrayList<>();
+	private int sortIndex;
+	private int totalCount;
+	private List<Entry> memoryRun;
+	private List<Run> runs = new ArrayList<>();
+	private PriorityQueue<Run> mergeQueue;
+	private String[] currentRecord;
+
+	public CsvExternalSortReader() {
+	}
+
+	/**
+	 * Defines the field used to sort the file. Must be called before
+	 * {@link #readFile(File)}.
+	 */
+	public void setSortField(String fieldName, CsvFieldType fieldType, boolean asc) {
+		this.sortFieldName = fieldName;
+		this.sortFieldIndex = -1;
+		this.sortFieldType = fieldType;
+		this.asc = asc;
+	}
+
+	/**
+	 * Defines the field used to sort the file, by index. Must be called before
+	 * {@link #readFile(File)}.
+	 */
+	public void setSortField(int fieldIndex, CsvFieldType fieldType, boolean asc) {
+		this.sortFieldName = null;
+		this.sortFieldIndex = fieldIndex;
+		this.sortFieldType = fieldType;
+		this.asc = asc;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Defines approximately how many bytes of the heap the records of a run may
+	 * take. Default is {@link #DEFAULT_MEMORY_BUDGET}.
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public File getTempDirectory() {
+		return tempDirectory;
+	}
+
+	/**
+	 * Defines where the sorted runs are written. Default is the system
+	 * temporary directory.
+	 */
+	public void setTempDirectory(File tempDirectory) {
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * The number of runs merged at once.
+	 */
+	void setMaxMergeRuns(int maxMergeRuns) {
+		this.maxMergeRuns = maxMergeRuns;
+	}
+
+	@Override
+	public void clear() {
+		closeQuietly();
+		super.clear();
+		fieldNames.clear();
+		totalCount = 0;
+		memoryRun = null;
+		mergeQueue = null;
+		currentRecord = null;
+	}
+
+	/**
+	 * Reads the whole file, sorting it in runs. The sorted records are read on
+	 * demand by {@link #next()}.
+	 */
+	@Override
+	public void readFile(File file) throws IOException {
+		checkSortField();
+		clear();
+		sort(openReader(file));
+	}
+
+	/**
+	 * Reads the whole stream, like {@link #readFile(File)}. Gzip compressed
+	 * streams are decompressed on a background thread.
+	 */
+	@Override
+	public void read(InputStream in) throws IOException {
+		checkSortField();
+		clear();
+		sort(openReader(in));
+	}
+
+	private void checkSortField() {
+		if (sortFieldType == null) {
+			throw new IllegalStateException("The sort field must be defined before reading the file.");
+		}
+	}
+
+	private void sort(BufferedReader reader) throws IOException {
+		try (BufferedReader bufReader = reader) {
+			String line = bufReader.readLine();
+			if (line == null) {
+				memoryRun = new ArrayList<>();
+				return;
+			}
+			if (firstLineIsHeader) {
+				readHeader(line);
+				line = bufReader.readLine();
+			}
+			List<Entry> run = new ArrayList<>();
+			long runSize = 0L;
+			for (; line != null; line = bufReader.readLine()) {
+				String[] record = parseRecord(line);
+				if (record == null) {
+					continue;
+				}
+				if (run.isEmpty()) {
+					resolveSortField();
+				}
+				run.add(new Entry(convertValue(record[sortIndex], sortFieldType), record));
+				++totalCount;
+				runSize += estimateSize(record);
+				if (runSize >= memoryBudget) {
+					spill(run);
+					run = new ArrayList<>();
+					runSize = 0L;
+				}
+			}
+			if (runs.isEmpty()) {
+				sortRun(run);
+				memoryRun = run;
+			} else {
+				if (!run.isEmpty()) {
+					spill(run);
+				}
+				startMerge();
+			}
+		} catch (IOException | RuntimeException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	@Override
+	protected void readHeader(List<String> fieldNames) {
+		super.readHeader(fieldNames);
+		for (int i = 0; i < fieldCount; ++i) {
+			this.fieldNames.add(fieldNames.get(fileFieldIndex(i)));
+		}
+	}
+
+	private void resolveSortField() {
+		sortIndex = sortFieldName != null ? getFieldIndex(sortFieldName) : sortFieldIndex;
+		if (sortIndex >= fieldCount) {
+			throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", sortIndex, fieldCount - 1));
+		}
+	}
+
+	private static long estimateSize(String[] record) {
+		// Entry, key, array and String objects, roughly
+		long size = 64L + 8L * record.length;
+		for (String value : record) {
+			if (value != null) {
+				size += 48L + 2L * value.length();
+			}
+		}
+		return size;
+	}
+
+	private void sortRun(List<Entry> run) {
+		Collections.sort(run, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				return compareKeys(o1.key, o2.key);
+			}
+		});
+	}
+
+	private int compareKeys(Comparable<?> k1, Comparable<?> k2) {
+		int res = CsvSortableReader.compareNullsFirst(k1, k2);
+		return asc ? res : -res;
+	}
+
+	private void spill(List<Entry> run) throws IOException {
+		sortRun(run);
+		File runFile = File.createTempFile("jcobs-sort", ".run", tempDirectory);
+		Run spilled = new Run(runs.size(), runFile, run.size());
+		runs.add(spilled);
+		try (DataOutputStream out = openRunOutput(runFile)) {
+			for (Entry entry : run) {
+				writeRecord(out, entry.record);
+			}
+		}
+	}
+
+	private static DataOutputStream openRunOutput(File runFile) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)));
+	}
+
+	private static void writeRecord(DataOutputStream out, String[] record) throws IOException {
+		for (String value : record) {
+			if (value == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = value.getBytes(RUN_CHARSET);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	private void startMerge() throws IOException {
+		while (runs.size() > maxMergeRuns) {
+			mergePass();
+		}
+		mergeQueue = openRuns(runs);
+	}
+
+	/**
+	 * Merges each group of consecutive runs into a single run, keeping them in
+	 * file order.
+	 */
+	private void mergePass() throws IOException {
+		List<Run> merged = new ArrayList<>();
+		try {
+			for (int from = 0; from < runs.size(); from += maxMergeRuns) {
+				List<Run> group = runs.subList(from, Math.min(from + maxMergeRuns, runs.size()));
+				if (group.size() == 1) {
+					Run run = group.get(0);
+					merged.add(new Run(merged.size(), run.file, run.remaining));
+				} else {
+					merged.add(mergeRuns(group, merged.size()));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Lets close() delete the files of both passes
+			runs.addAll(merged);
+			throw e;
+		}
+		runs = merged;
+	}
+
+	private Run mergeRuns(List<Run> group, int index) throws IOException {
+		int count = 0;
+		for (Run run : group) {
+			count += run.remaining;
+		}
+		Run merged = new Run(index, File.createTempFile("jcobs-sort", ".run", tempDirectory), count);
+		try (DataOutputStream out = openRunOutput(merged.file)) {
+			PriorityQueue<Run> queue = openRuns(group);
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				writeRecord(out, run.record);
+				if (run.advance()) {
+					queue.add(run);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			merged.close();
+			throw e;
+		}
+		return merged;
+	}
+
+	private PriorityQueue<Run> openRuns(List<Run> runs) throws IOException {
+		// The budget is shared by the open runs, which are never more than maxMergeRuns
+		int bufferSize = (int) Math.max(4096L, Math.min(MAX_RUN_BUFFER_SIZE, memoryBudget / runs.size()));
+		PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(), new Comparator<Run>() {
+			@Override
+			public int compare(Run o1, Run o2) {
+				int res = compareKeys(o1.key, o2.key);
+				// Runs are in file order, so ties keep the original order
+				return res != 0 ? res : Integer.compare(o1.index, o2.index);
+			}
+		});
+		for (Run run : runs) {
+			run.open(bufferSize);
+			if (run.advance()) {
+				queue.add(run);
+			}
+		}
+		return queue;
+	}
+
+	@Override
+	public boolean next() {
+		if (memoryRun != null) {
+			if (currentIndex < memoryRun.size() - 1) {
+				currentRecord = memoryRun.get(++currentIndex).record;
+				return true;
+			}
+			currentRecord = null;
+			return false;
+		}
+		if (mergeQueue == null || mergeQueue.isEmpty()) {
+			currentRecord = null;
+			return false;
+		}
+		Run run = mergeQueue.poll();
+		currentRecord = run.record;
+		++currentIndex;
+		try {
+			if (run.advance()) {
+				mergeQueue.add(run);
+			}
+		} catch (IOException e) {
+			closeQuietly();
+			throw new CsvFormatError(e);
+		}
+		return true;
+	}
+
+	@Override
+	protected String getValue(int fieldIndex) {
+		if (currentRecord == null) {
+			throw new IllegalStateException("There's no current record.");
+		}
+		return currentRecord[fieldIndex];
+	}
+
+	/**
+	 * Returns the number of records of the file.
+	 */
+	@Override
+	public int recordCount() {
+		return totalCount;
+	}
+
+	@Override
+	protected boolean keepsRecords() {
+		return false;
+	}
+
+	/**
+	 * Writes the remaining sorted records (all of them, if {@link #next()} was
+	 * not called yet) to a new CSV file, with the same header, separator,
+	 * delimiters and charset (see {@link #setCharset(Charset)}).
+	 */
+	public void writeFile(File file) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), getCharset()))) {
+			if (firstLineIsHeader && !fieldNames.isEmpty()) {
+				writeLine(writer, fieldNames.toArray(new String[fieldNames.size()]));
+			}
+			while (next()) {
+				writeLine(writer, currentRecord);
+			}
+		}
+	}
+
+	private void writeLine(BufferedWriter writer, String[] values) throws IOException {
+		for (int i = 0; i < values.length; ++i) {
+			if (i > 0) {
+				writer.write(separator);
+			}
+			if (values[i] != null) {
+				writer.write(formatFragment(values[i]));
+			}
+		}
+		writer.newLine();
+	}
+
+	private String formatFragment(String value) {
+		if (value.indexOf(separator) == -1 && value.indexOf(delimiter) == -1 && value.indexOf(delimiterEscape) == -1) {
+			return value;
+		}
+		StringBuilder result = new StringBuilder(value.length() + 8);
+		result.append(delimiter);
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == delimiter) {
+				result.append(delimiterEscape);
+			}
+			result.append(c);
+		}
+		result.append(delimiter);
+		return result.toString();
+	}
+
+	/**
+	 * Closes and deletes the temporary files of the sorted runs.
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+		for (Run run : runs) {
+			try {
+				run.close();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		runs.clear();
+		mergeQueue = null;
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			// Nothing to do, the files are being discarded anyway.
+		}
+	}
+
+	private static class Entry {
+
+		private final Comparable<?> key;
+		private final String[] record;
+
+		Entry(Comparable<?> key, String[] record) {
+			this.key = key;
+			this.record = record;
+		}
+
+	}
+
+	/**
+	 * A sorted run spilled to a temporary file.
+	 */
+	private class Run {
+
+		private final int index;
+		private final File file;
+		private int remaining;
+		private DataInputStream in;
+		private String[] record;
+		private Comparable<?> key;
+
+		Run(int index, File file, int count) {
+			this.index = index;
+			this.file = file;
+			this.remaining = count;
+		}
+
+		void open(int bufferSize) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize));
+		}
+
+		boolean advance() throws IOException {
+			if (remaining == 0) {
+				close();
+				return false;
+			}
+			--remaining;
+			record = new String[fieldCount];
+			for (int i = 0; i < fieldCount; ++i) {
+				int length = in.readInt();
+				if (length >= 0) {
+					byte[] bytes = new byte[length];
+					in.readFully(bytes);
+					record[i] = new String(bytes, RUN_CHARSET);
+				}
+			}
+			key = convertValue(record[sortIndex], sortFieldType);
+			return true;
+		}
+
+		void close() throws IOException {
+			try {
+				if (in != null) {
+					in.close();
+					in = null;
+				}
+			} finally {
+				file.delete();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Date;
+
+/**
+ * A field of a {@link CsvReader}, resolved once by
+ * {@link CsvReader#field(String, CsvFieldType)}, that reads the values of the
+ * current record without looking up the field name again.
+ *
+ * <pre>
+ * CsvField&lt;Integer&gt; codigo = reader.field(&quot;codigo&quot;, CsvFieldType.INTEGER);
+ * while (reader.next()) {
+ * 	total += codigo.getIntValue();
+ * }
+ * </pre>
+ *
+ * The type parameter must be the class of the values of the field type:
+ * {@link String}, {@link Integer}, {@link Long} or {@link Date}. The field
+ * refers to a position in the header, so it must be resolved again when
+ * another file is read.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvField<T> {
+
+	private final CsvReader reader;
+	private final String name;
+	private final int index;
+	private final CsvFieldType type;
+
+	CsvField(CsvReader reader, String name, int index, CsvFieldType type) {
+		this.reader = reader;
+		this.name = name;
+		this.index = index;
+		this.type = type;
+	}
+
+	/**
+	 * @return the name of the field, or <code>null</code> if it was resolved
+	 *         by index.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public CsvFieldType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the value of the current record, converted to the type of the
+	 * field.
+	 */
+	public T get() {
+		return reader.getAsType(index, type);
+	}
+
+	public String getString() {
+		return reader.getString(index);
+	}
+
+	/**
+	 * @see CsvReader#getIntValue(int)
+	 */
+	public int getIntValue() {
+		return reader.getIntValue(index);
+	}
+
+	/**
+	 * @see CsvReader#getLongValue(int)
+	 */
+	public long getLongValue() {
+		return reader.getLongValue(index);
+	}
+
+	/**
+	 * @see CsvReader#getDateMillis(int)
+	 */
+	public long getDateMillis() {
+		return reader.getDateMillis(index);
+	}
+
+	public boolean isNull() {
+		return reader.isNull(index);
+	}
+
+	@Override
+	public String toString() {
+		return (name != null ? name : "#" + index) + ":" + type;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for changes of the file followed by a {@link CsvReader}, with a
+ * {@link WatchService} over its directory, and reads the records appended to
+ * it.
+ *
+ * <pre>
+ * reader.follow(file);
+ * try (CsvFileWatcher watcher = new CsvFileWatcher(reader)) {
+ * 	while (running) {
+ * 		int added = watcher.await(1, TimeUnit.MINUTES);
+ * 	}
+ * }
+ * </pre>
+ *
+ * The reader must not be polled by other threads while it's watched.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvFileWatcher implements Closeable {
+
+	private final CsvReader reader;
+	private final Path file;
+	private final WatchService watchService;
+
+	/**
+	 * @param reader
+	 *            a reader following a file, see {@link CsvReader#follow(File)}.
+	 */
+	public CsvFileWatcher(CsvReader reader) throws IOException {
+		File followedFile = reader.getFollowedFile();
+		if (followedFile == null) {
+			throw new IllegalStateException("No file is being followed.");
+		}
+		this.reader = reader;
+		this.file = followedFile.toPath().toAbsolutePath();
+		this.watchService = file.getFileSystem().newWatchService();
+		try {
+			file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException | RuntimeException e) {
+			watchService.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits until the file changes, or the timeout elapses, and then reads the
+	 * records appended to it with {@link CsvReader#poll()}. Some watch
+	 * services notice the changes only after a few seconds, so the file is
+	 * polled when the timeout elapses too.
+	 *
+	 * @return the number of records added.
+	 */
+	public int await(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+			if (key == null) {
+				break;
+			}
+			boolean changed = false;
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+					changed = true;
+				}
+			}
+			key.reset();
+			if (changed) {
+				break;
+			}
+		}
+		return reader.poll();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+}
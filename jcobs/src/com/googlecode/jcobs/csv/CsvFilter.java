@@ -0,0 +1,30 @@
+package com.googlecode.jcobs.csv;
+
+/**
+ * Selects the records read by a {@link CsvReader} by the value of a field
+ * (see {@link CsvReader#addFilter(String, CsvFilter)}). The filter is called
+ * while the line is parsed, as soon as the field fragment is read, and
+ * rejected records are discarded right away.
+ *
+ * <pre>
+ * reader.addFilter(&quot;setor&quot;, new CsvFilter() {
+ * 	public boolean accept(String value) {
+ * 		return &quot;Passadoria&quot;.equals(value);
+ * 	}
+ * });
+ * </pre>
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public interface CsvFilter {
+
+	/**
+	 * @param value
+	 *            the value of the field as it is in the file, or
+	 *            <code>null</code> if it's empty.
+	 * @return whether the record must be read.
+	 */
+	boolean accept(String value);
+
+}
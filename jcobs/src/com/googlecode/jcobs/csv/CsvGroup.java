@@ -0,0 +1,76 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Arrays;
+
+import com.googlecode.jcobs.math.Real;
+
+/**
+ * A group of records computed by a {@link CsvAggregation}: the values of its
+ * group fields and of its aggregates.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvGroup {
+
+	private final Object[] key;
+	private final long count;
+	private final Object[] values;
+
+	CsvGroup(Object[] key, long count, Object[] values) {
+		this.key = key;
+		this.count = count;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the value of a group field, in the order they were added to the
+	 * aggregation, converted to its type: a {@link String}, {@link Integer},
+	 * {@link Long} or {@link java.util.Date}, or <code>null</code> for the
+	 * group of the empty values.
+	 */
+	public Object getKey(int groupFieldIndex) {
+		return key[groupFieldIndex];
+	}
+
+	/**
+	 * Returns the values of all the group fields.
+	 */
+	public Object[] getKey() {
+		return key.clone();
+	}
+
+	/**
+	 * Returns the number of records of the group.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the value of an aggregate, in the order they were added to the
+	 * aggregation: a {@link Long} for counts, a {@link Real} for the others,
+	 * or <code>null</code> if all the values of the field are empty in the
+	 * group.
+	 */
+	public Object getValue(int aggregateIndex) {
+		return values[aggregateIndex];
+	}
+
+	/**
+	 * Returns the value of an aggregate as a {@link Real}, counts included.
+	 */
+	public Real getReal(int aggregateIndex) {
+		Object value = values[aggregateIndex];
+		if (value instanceof Long) {
+			return new Real((Long) value);
+		}
+		return (Real) value;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(key) + " " + Arrays.toString(values);
+	}
+
+}
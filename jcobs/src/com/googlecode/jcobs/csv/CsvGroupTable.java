@@ -0,0 +1,296 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The groups of a {@link CsvAggregation} computed by one thread over part of
+ * the records. Each thread fills its own table, without any locking, and the
+ * tables are merged at the end.
+ *
+ * <p>
+ * Groups by a single integer, long or date field are kept in an open
+ * addressing table over the primitive keys, like {@link CsvLongIndex}, so
+ * looking up the group of a record doesn't box its key. Other groups are
+ * kept in a {@link HashMap}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+final class CsvGroupTable {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final int[] keyFields;
+	private final CsvFieldType[] keyTypes;
+	private final CsvAggregateFunction[] functions;
+	private final int[] valueFields;
+	private final CsvDecimal value = new CsvDecimal();
+	/**
+	 * The groups, in the order they first appear in the records.
+	 */
+	private final List<Group> groups = new ArrayList<>();
+	private final boolean primitiveKeys;
+	private long[] keys;
+	/**
+	 * The position of the group of each slot in {@link #groups}, or -1 if the
+	 * slot is empty.
+	 */
+	private int[] slots;
+	private int mask;
+	private Group nullGroup;
+	private final Map<Object, Group> groupsByKey;
+
+	CsvGroupTable(int[] keyFields, CsvFieldType[] keyTypes, CsvAggregateFunction[] functions, int[] valueFields) {
+		this.keyFields = keyFields;
+		this.keyTypes = keyTypes;
+		this.functions = functions;
+		this.valueFields = valueFields;
+		this.primitiveKeys = keyFields.length == 1 && keyTypes[0] != CsvFieldType.STRING;
+		if (primitiveKeys) {
+			keys = new long[MIN_CAPACITY];
+			slots = new int[MIN_CAPACITY];
+			Arrays.fill(slots, -1);
+			mask = MIN_CAPACITY - 1;
+			groupsByKey = null;
+		} else {
+			groupsByKey = new HashMap<>();
+		}
+	}
+
+	void add(CsvRecord record) {
+		Group group;
+		if (primitiveKeys) {
+			group = findGroup(record);
+		} else {
+			Object key = getKey(record);
+			group = groupsByKey.get(key);
+			if (group == null) {
+				group = new Group(key, functions.length);
+				insert(group);
+			}
+		}
+		++group.count;
+		for (int a = 0; a < functions.length; ++a) {
+			int fieldIndex = valueFields[a];
+			if (functions[a] == CsvAggregateFunction.COUNT || record.isNull(fieldIndex)) {
+				continue;
+			}
+			value.parse(record.getString(fieldIndex));
+			group.accumulate(a, functions[a], value);
+		}
+	}
+
+	/**
+	 * Adds the groups of a table computed over the records that follow the
+	 * records of this one.
+	 */
+	void merge(CsvGroupTable other) {
+		for (Group group : other.groups) {
+			Group existing;
+			if (!primitiveKeys) {
+				existing = groupsByKey.get(group.key);
+			} else if (group.key == null) {
+				existing = nullGroup;
+			} else {
+				int position = slots[slot((Long) group.key)];
+				existing = position == -1 ? null : groups.get(position);
+			}
+			if (existing == null) {
+				insert(group);
+			} else {
+				existing.merge(group, functions);
+			}
+		}
+	}
+
+	List<CsvGroup> toGroups() {
+		List<CsvGroup> result = new ArrayList<>(groups.size());
+		for (Group group : groups) {
+			Object[] key = keyFields.length == 1 ? new Object[] { group.key } : ((List<?>) group.key).toArray();
+			for (int i = 0; i < key.length; ++i) {
+				key[i] = toKeyValue(key[i], keyTypes[i]);
+			}
+			Object[] values = new Object[functions.length];
+			for (int a = 0; a < functions.length; ++a) {
+				values[a] = group.getValue(a, functions[a]);
+			}
+			result.add(new CsvGroup(key, group.count, values));
+		}
+		return result;
+	}
+
+	private Group findGroup(CsvRecord record) {
+		int fieldIndex = keyFields[0];
+		if (record.isNull(fieldIndex)) {
+			if (nullGroup == null) {
+				insert(new Group(null, functions.length));
+			}
+			return nullGroup;
+		}
+		long key = record.getPrimitiveValue(fieldIndex, keyTypes[0]);
+		int position = slots[slot(key)];
+		if (position != -1) {
+			return groups.get(position);
+		}
+		Group group = new Group(key, functions.length);
+		insert(group);
+		return group;
+	}
+
+	private void insert(Group group) {
+		groups.add(group);
+		if (!primitiveKeys) {
+			groupsByKey.put(group.key, group);
+		} else if (group.key == null) {
+			nullGroup = group;
+		} else {
+			if (groups.size() * 2L > slots.length) {
+				rehash(slots.length * 2);
+			}
+			long key = (Long) group.key;
+			int slot = slot(key);
+			keys[slot] = key;
+			slots[slot] = groups.size() - 1;
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldSlots = slots;
+		keys = new long[capacity];
+		slots = new int[capacity];
+		Arrays.fill(slots, -1);
+		mask = capacity - 1;
+		for (int i = 0; i < oldSlots.length; ++i) {
+			if (oldSlots[i] != -1) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				slots[slot] = oldSlots[i];
+			}
+		}
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (slots[slot] != -1 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private Object getKey(CsvRecord record) {
+		if (keyFields.length == 1) {
+			return getKeyValue(record, 0);
+		}
+		Object[] key = new Object[keyFields.length];
+		for (int i = 0; i < key.length; ++i) {
+			key[i] = getKeyValue(record, i);
+		}
+		return Arrays.asList(key);
+	}
+
+	private Object getKeyValue(CsvRecord record, int i) {
+		int fieldIndex = keyFields[i];
+		if (record.isNull(fieldIndex)) {
+			return null;
+		}
+		if (keyTypes[i] == CsvFieldType.STRING) {
+			return record.getString(fieldIndex);
+		}
+		return record.getPrimitiveValue(fieldIndex, keyTypes[i]);
+	}
+
+	private static Object toKeyValue(Object value, CsvFieldType fieldType) {
+		if (value == null) {
+			return null;
+		}
+		switch (fieldType) {
+		case INTEGER:
+			return ((Long) value).intValue();
+		case UTIL_DATE:
+			return new Date((Long) value);
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * The aggregates of a group, so far.
+	 */
+	private static final class Group {
+
+		private final Object key;
+		private long count;
+		/**
+		 * The number of non empty values of each aggregate.
+		 */
+		private final long[] valueCounts;
+		private final CsvDecimal[] values;
+
+		private Group(Object key, int aggregateCount) {
+			this.key = key;
+			this.valueCounts = new long[aggregateCount];
+			this.values = new CsvDecimal[aggregateCount];
+			for (int a = 0; a < aggregateCount; ++a) {
+				values[a] = new CsvDecimal();
+			}
+		}
+
+		private void accumulate(int a, CsvAggregateFunction function, CsvDecimal value) {
+			if (valueCounts[a]++ == 0) {
+				values[a].set(value);
+				return;
+			}
+			switch (function) {
+			case SUM:
+			case AVG:
+				values[a].add(value);
+				break;
+			case MIN:
+				if (value.compareTo(values[a]) < 0) {
+					values[a].set(value);
+				}
+				break;
+			case MAX:
+				if (value.compareTo(values[a]) > 0) {
+					values[a].set(value);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void merge(Group other, CsvAggregateFunction[] functions) {
+			count += other.count;
+			for (int a = 0; a < functions.length; ++a) {
+				if (other.valueCounts[a] > 0) {
+					long valueCount = other.valueCounts[a];
+					accumulate(a, functions[a], other.values[a]);
+					valueCounts[a] += valueCount - 1;
+				}
+			}
+		}
+
+		private Object getValue(int a, CsvAggregateFunction function) {
+			if (function == CsvAggregateFunction.COUNT) {
+				return count;
+			}
+			if (valueCounts[a] == 0) {
+				return null;
+			}
+			if (function == CsvAggregateFunction.AVG) {
+				return values[a].toReal().divide(valueCounts[a]);
+			}
+			return values[a].toReal();
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link CsvIndex} over one or more fields compared as strings, as they are
+ * in the file. The key of a single field is the value itself, and the key of
+ * several fields is the list of their values.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvHashIndex extends CsvIndex {
+
+	private final int[] fieldIndexes;
+	private final Map<Object, Integer> firstRecords;
+
+	CsvHashIndex(CsvReader reader, int... fieldIndexes) {
+		super(reader);
+		this.fieldIndexes = fieldIndexes;
+		int recordCount = nextRecords.length;
+		firstRecords = new HashMap<>(Math.max(16, (int) (recordCount / 0.75f) + 1));
+		// Backwards, so that each chain ends up in ascending order
+		for (int r = recordCount - 1; r >= 0; --r) {
+			Object key = recordKey(r);
+			Integer first = firstRecords.put(key, r);
+			nextRecords[r] = first == null ? -1 : first;
+		}
+	}
+
+	private Object recordKey(int recordIndex) {
+		if (fieldIndexes.length == 1) {
+			return reader.getValue(recordIndex, fieldIndexes[0]);
+		}
+		String[] values = new String[fieldIndexes.length];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = reader.getValue(recordIndex, fieldIndexes[i]);
+		}
+		return Arrays.asList(values);
+	}
+
+	@Override
+	int firstRecord(Object[] key) {
+		checkKeyLength(key, fieldIndexes.length);
+		Object lookupKey;
+		if (key.length == 1) {
+			lookupKey = toKeyString(key[0]);
+		} else {
+			String[] values = new String[key.length];
+			for (int i = 0; i < values.length; ++i) {
+				values[i] = toKeyString(key[i]);
+			}
+			lookupKey = Arrays.asList(values);
+		}
+		Integer first = firstRecords.get(lookupKey);
+		return first == null ? -1 : first;
+	}
+
+}
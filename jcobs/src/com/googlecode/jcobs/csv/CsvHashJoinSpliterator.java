@@ -0,0 +1,91 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The records of a hash join: each record of the probe side is looked up in a
+ * {@link CsvIndex} over the build side, and paired with each record found, in
+ * the order of the probe side. Only the records found for the current probe
+ * record are pending at any time.
+ *
+ * <p>
+ * Splits along with the probe side, so parallel streams probe the index from
+ * several threads.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvHashJoinSpliterator implements Spliterator<CsvJoinedRecord> {
+
+	private final Spliterator<CsvRecord> probe;
+	private final int probeFieldIndex;
+	private final CsvFieldType fieldType;
+	private final CsvIndex index;
+	private final boolean probeIsLeft;
+	private CsvRecord probeRecord;
+	/**
+	 * The next record of the build side paired with {@link #probeRecord}, or
+	 * -1.
+	 */
+	private int nextMatch = -1;
+	private final Consumer<CsvRecord> setProbeRecord = record -> probeRecord = record;
+
+	CsvHashJoinSpliterator(Spliterator<CsvRecord> probe, int probeFieldIndex, CsvFieldType fieldType, CsvIndex index,
+			boolean probeIsLeft) {
+		this.probe = probe;
+		this.probeFieldIndex = probeFieldIndex;
+		this.fieldType = fieldType;
+		this.index = index;
+		this.probeIsLeft = probeIsLeft;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super CsvJoinedRecord> action) {
+		while (nextMatch == -1) {
+			if (!probe.tryAdvance(setProbeRecord)) {
+				return false;
+			}
+			nextMatch = find(probeRecord);
+		}
+		CsvRecord match = new CsvRecord(index.reader, nextMatch);
+		nextMatch = index.findNext(nextMatch);
+		action.accept(probeIsLeft ? new CsvJoinedRecord(probeRecord, match) : new CsvJoinedRecord(match, probeRecord));
+		return true;
+	}
+
+	private int find(CsvRecord record) {
+		if (record.isNull(probeFieldIndex)) {
+			// Empty keys don't match anything
+			return -1;
+		}
+		if (fieldType == CsvFieldType.STRING) {
+			return index.find(record.getString(probeFieldIndex));
+		}
+		return index.find(record.getPrimitiveValue(probeFieldIndex, fieldType));
+	}
+
+	@Override
+	public Spliterator<CsvJoinedRecord> trySplit() {
+		if (nextMatch != -1) {
+			// The records pending come before the ones that would be split
+			return null;
+		}
+		Spliterator<CsvRecord> prefix = probe.trySplit();
+		if (prefix == null) {
+			return null;
+		}
+		return new CsvHashJoinSpliterator(prefix, probeFieldIndex, fieldType, index, probeIsLeft);
+	}
+
+	@Override
+	public long estimateSize() {
+		return probe.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A hash index over one or more fields of the records loaded by a
+ * {@link CsvReader}, created by {@link CsvReader#createIndex(String, CsvFieldType)}
+ * or {@link CsvReader#createIndex(String...)}. Finds the records with a given
+ * key in constant time, instead of navigating through all of them.
+ *
+ * <pre>
+ * CsvIndex index = reader.createIndex(&quot;codigo&quot;, CsvFieldType.INTEGER);
+ * if (reader.lookup(index, 11002)) {
+ * 	String nome = reader.getString(&quot;nome&quot;);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Keys don't need to be unique: the records with the same key are kept in a
+ * chain, in the order of the reader. The index refers to record positions, so
+ * it becomes invalid when the reader is cleared or read again. Sorting
+ * doesn't move the records, so it doesn't affect the index.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public abstract class CsvIndex {
+
+	private static final int[] NO_RECORDS = new int[0];
+
+	final CsvReader reader;
+	private final int modCount;
+	/**
+	 * The next record with the same key of each record, or -1.
+	 */
+	final int[] nextRecords;
+
+	CsvIndex(CsvReader reader) {
+		this.reader = reader;
+		this.modCount = reader.modCount;
+		this.nextRecords = new int[reader.recordCount()];
+	}
+
+	/**
+	 * Returns the position of the first record with the given key, or -1 if
+	 * there's none. The key has one value per indexed field.
+	 */
+	public int find(Object... key) {
+		checkValid();
+		return firstRecord(key);
+	}
+
+	/**
+	 * Returns the position of the first record with the given key, or -1 if
+	 * there's none. Integer and long indexes don't box the key.
+	 */
+	public int find(long key) {
+		return find(Long.valueOf(key));
+	}
+
+	/**
+	 * Returns the positions of all the records with the given key, in
+	 * ascending order.
+	 */
+	public int[] findAll(Object... key) {
+		checkValid();
+		return collect(firstRecord(key));
+	}
+
+	public int[] findAll(long key) {
+		return findAll(Long.valueOf(key));
+	}
+
+	/**
+	 * Returns the position of the next record with the same key of the given
+	 * one, or -1 if there's none.
+	 */
+	public int findNext(int recordIndex) {
+		checkValid();
+		return nextRecords[recordIndex];
+	}
+
+	/**
+	 * Returns the number of indexed records.
+	 */
+	public int size() {
+		return nextRecords.length;
+	}
+
+	abstract int firstRecord(Object[] key);
+
+	final void checkValid() {
+		if (reader.modCount != modCount) {
+			throw new IllegalStateException("The index is out of date: the records were reloaded after it was created.");
+		}
+	}
+
+	final void checkKeyLength(Object[] key, int fieldCount) {
+		if (key == null || key.length != fieldCount) {
+			throw new IllegalArgumentException(String.format("Invalid key: %s. Expecting %d values.", Arrays.toString(key), fieldCount));
+		}
+	}
+
+	final int[] collect(int firstRecord) {
+		if (firstRecord == -1) {
+			return NO_RECORDS;
+		}
+		int count = 0;
+		for (int r = firstRecord; r != -1; r = nextRecords[r]) {
+			++count;
+		}
+		int[] result = new int[count];
+		int i = 0;
+		for (int r = firstRecord; r != -1; r = nextRecords[r]) {
+			result[i++] = r;
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a key value to the string it would have in the file.
+	 */
+	final String toKeyString(Object value) {
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof Date) {
+			return reader.formatValue(value, CsvFieldType.UTIL_DATE);
+		}
+		return value.toString();
+	}
+
+}
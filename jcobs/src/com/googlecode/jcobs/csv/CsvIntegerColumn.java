@@ -0,0 +1,80 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@link CsvColumn} of {@link CsvFieldType#INTEGER} values, stored as an
+ * <code>int[]</code>.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvIntegerColumn extends CsvColumn {
+
+	private int[] values = new int[INITIAL_CAPACITY];
+
+	@Override
+	CsvFieldType getType() {
+		return CsvFieldType.INTEGER;
+	}
+
+	@Override
+	void add(String value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, newCapacity(size));
+		}
+		if (value == null) {
+			setNull(size);
+		} else {
+			values[size] = Integer.parseInt(value);
+		}
+		++size;
+	}
+
+	int getInt(int row) {
+		return values[row];
+	}
+
+	@Override
+	String getString(int row) {
+		return isNull(row) ? null : Integer.toString(values[row]);
+	}
+
+	@Override
+	Object getValue(int row) {
+		return isNull(row) ? null : Integer.valueOf(values[row]);
+	}
+
+	@Override
+	int compare(int row1, int row2) {
+		if (isNull(row1) || isNull(row2)) {
+			return compareNulls(row1, row2);
+		}
+		return Integer.compare(values[row1], values[row2]);
+	}
+
+	@Override
+	void write(DataOutput out) throws IOException {
+		writeNulls(out);
+		for (int i = 0; i < size; ++i) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	@Override
+	void read(CsvSnapshot.Input in, int count) throws IOException {
+		readNulls(in, count);
+		values = new int[count];
+		in.get(values);
+		size = count;
+	}
+
+	@Override
+	void trim() {
+		values = Arrays.copyOf(values, size);
+		trimNulls();
+	}
+
+}
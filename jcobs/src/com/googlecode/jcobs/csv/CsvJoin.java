@@ -0,0 +1,150 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Pairs the records of two readers with the same value in a field, like a SQL
+ * inner join. The pairs are given as a stream, computed as it's consumed:
+ * the pairs are never all kept in memory.
+ *
+ * <pre>
+ * // Each colaborador with the gerente
+ * CsvJoin join = new CsvJoin(colaboradores, &quot;codigoGerente&quot;, gerentes, &quot;codigo&quot;, CsvFieldType.INTEGER);
+ * join.stream().forEach(r -&gt; System.out.println(r.getLeft().getString(&quot;nome&quot;) + &quot; - &quot; + r.getRight().getString(&quot;nome&quot;)));
+ * </pre>
+ *
+ * Two algorithms are available:
+ * <ul>
+ * <li>{@link #hashJoin()} indexes the records of the right reader, which must
+ * keep them in memory, and looks up each record of the left one, in its
+ * order. The left reader may read its records in sequence.</li>
+ * <li>{@link #mergeJoin()} walks both readers in the order of the join field,
+ * which must keep their records in memory. The orders are cached by the
+ * readers, like the ones of {@link CsvSortableReader#sort(CsvSortField...)},
+ * so joining sorted readers doesn't sort them again.</li>
+ * </ul>
+ * {@link #stream()} chooses between them by the size of the readers.
+ *
+ * <p>
+ * Records with an empty value in the join field don't match any record.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvJoin {
+
+	private static final int DEFAULT_MAX_HASH_JOIN_SIZE = 100_000;
+
+	private final CsvReader left;
+	private final String leftFieldName;
+	private final int leftFieldIndex;
+	private final CsvReader right;
+	private final String rightFieldName;
+	private final int rightFieldIndex;
+	private final CsvFieldType fieldType;
+	private int maxHashJoinSize = DEFAULT_MAX_HASH_JOIN_SIZE;
+
+	/**
+	 * @param fieldType
+	 *            the type used to compare the values of the fields. Integer,
+	 *            long and date fields are compared by their converted values,
+	 *            string fields by the values as they are in the files.
+	 */
+	public CsvJoin(CsvReader left, String leftFieldName, CsvReader right, String rightFieldName, CsvFieldType fieldType) {
+		this(left, leftFieldName, -1, right, rightFieldName, -1, fieldType);
+	}
+
+	public CsvJoin(CsvReader left, int leftFieldIndex, CsvReader right, int rightFieldIndex, CsvFieldType fieldType) {
+		this(left, null, leftFieldIndex, right, null, rightFieldIndex, fieldType);
+	}
+
+	private CsvJoin(CsvReader left, String leftFieldName, int leftFieldIndex, CsvReader right, String rightFieldName,
+			int rightFieldIndex, CsvFieldType fieldType) {
+		this.left = left;
+		this.leftFieldName = leftFieldName;
+		this.leftFieldIndex = leftFieldIndex;
+		this.right = right;
+		this.rightFieldName = rightFieldName;
+		this.rightFieldIndex = rightFieldIndex;
+		this.fieldType = fieldType;
+	}
+
+	public int getMaxHashJoinSize() {
+		return maxHashJoinSize;
+	}
+
+	/**
+	 * The maximum number of records of the smaller reader for
+	 * {@link #stream()} to choose a hash join when both readers keep their
+	 * records in memory.
+	 */
+	public void setMaxHashJoinSize(int maxHashJoinSize) {
+		this.maxHashJoinSize = maxHashJoinSize;
+	}
+
+	/**
+	 * Joins the readers with the best algorithm for them: a hash join over the
+	 * reader that keeps its records in memory, if only one of them does; over
+	 * the smaller reader, if it has no more than
+	 * {@link #setMaxHashJoinSize(int)} records; a merge join otherwise.
+	 */
+	public Stream<CsvJoinedRecord> stream() {
+		if (!left.keepsRecords()) {
+			return hashJoin(left, getLeftFieldIndex(), right, getRightFieldIndex(), true);
+		}
+		if (!right.keepsRecords()) {
+			return hashJoin(right, getRightFieldIndex(), left, getLeftFieldIndex(), false);
+		}
+		if (Math.min(left.recordCount(), right.recordCount()) > maxHashJoinSize) {
+			return mergeJoin();
+		}
+		if (left.recordCount() < right.recordCount()) {
+			return hashJoin(right, getRightFieldIndex(), left, getLeftFieldIndex(), false);
+		}
+		return hashJoin(left, getLeftFieldIndex(), right, getRightFieldIndex(), true);
+	}
+
+	/**
+	 * Joins the readers with a hash index over the records of the right one.
+	 * The pairs come in the order of the left reader and, for each left
+	 * record, of the right one. The stream may be made parallel.
+	 *
+	 * <p>
+	 * If the left reader doesn't keep its records in memory, its next records
+	 * are read, moving the cursor.
+	 */
+	public Stream<CsvJoinedRecord> hashJoin() {
+		return hashJoin(left, getLeftFieldIndex(), right, getRightFieldIndex(), true);
+	}
+
+	/**
+	 * Joins the readers by walking both of them in the order of the join
+	 * field. The pairs come in the order of the key and, for each key, of the
+	 * readers. Both readers must keep their records in memory.
+	 */
+	public Stream<CsvJoinedRecord> mergeJoin() {
+		left.checkRandomAccess();
+		right.checkRandomAccess();
+		CsvMergeJoinSpliterator spliterator = new CsvMergeJoinSpliterator(left, getLeftFieldIndex(), right,
+				getRightFieldIndex(), fieldType);
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	private Stream<CsvJoinedRecord> hashJoin(CsvReader probe, int probeFieldIndex, CsvReader build, int buildFieldIndex,
+			boolean probeIsLeft) {
+		probe.checkFieldIndex(probeFieldIndex);
+		CsvIndex index = build.createIndex(buildFieldIndex, fieldType);
+		return StreamSupport.stream(new CsvHashJoinSpliterator(probe.spliterator(), probeFieldIndex, fieldType, index,
+				probeIsLeft), false);
+	}
+
+	private int getLeftFieldIndex() {
+		return leftFieldName != null ? left.getFieldIndex(leftFieldName) : leftFieldIndex;
+	}
+
+	private int getRightFieldIndex() {
+		return rightFieldName != null ? right.getFieldIndex(rightFieldName) : rightFieldIndex;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.googlecode.jcobs.csv;
+
+/**
+ * A pair of records with the same key, given by a {@link CsvJoin}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvJoinedRecord {
+
+	private final CsvRecord left;
+	private final CsvRecord right;
+
+	CsvJoinedRecord(CsvRecord left, CsvRecord right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Returns the record of the left reader of the join.
+	 */
+	public CsvRecord getLeft() {
+		return left;
+	}
+
+	/**
+	 * Returns the record of the right reader of the join.
+	 */
+	public CsvRecord getRight() {
+		return right;
+	}
+
+}
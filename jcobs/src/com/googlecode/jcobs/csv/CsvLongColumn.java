@@ -0,0 +1,96 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@link CsvColumn} of {@link CsvFieldType#LONG} values, stored as a
+ * <code>long[]</code>.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvLongColumn extends CsvColumn {
+
+	private long[] values = new long[INITIAL_CAPACITY];
+
+	@Override
+	CsvFieldType getType() {
+		return CsvFieldType.LONG;
+	}
+
+	@Override
+	void add(String value) {
+		if (value == null) {
+			addNull();
+		} else {
+			add(parse(value));
+		}
+	}
+
+	protected long parse(String value) {
+		return Long.parseLong(value);
+	}
+
+	protected void add(long value) {
+		ensureCapacity();
+		values[size++] = value;
+	}
+
+	protected void addNull() {
+		ensureCapacity();
+		setNull(size++);
+	}
+
+	private void ensureCapacity() {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, newCapacity(size));
+		}
+	}
+
+	long getLong(int row) {
+		return values[row];
+	}
+
+	@Override
+	String getString(int row) {
+		return isNull(row) ? null : Long.toString(values[row]);
+	}
+
+	@Override
+	Object getValue(int row) {
+		return isNull(row) ? null : Long.valueOf(values[row]);
+	}
+
+	@Override
+	int compare(int row1, int row2) {
+		if (isNull(row1) || isNull(row2)) {
+			return compareNulls(row1, row2);
+		}
+		return Long.compare(values[row1], values[row2]);
+	}
+
+	@Override
+	void write(DataOutput out) throws IOException {
+		writeNulls(out);
+		for (int i = 0; i < size; ++i) {
+			out.writeLong(values[i]);
+		}
+	}
+
+	@Override
+	void read(CsvSnapshot.Input in, int count) throws IOException {
+		readNulls(in, count);
+		values = new long[count];
+		in.get(values);
+		size = count;
+	}
+
+	@Override
+	void trim() {
+		values = Arrays.copyOf(values, size);
+		trimNulls();
+	}
+
+}
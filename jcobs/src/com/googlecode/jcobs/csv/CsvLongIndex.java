@@ -0,0 +1,98 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Date;
+
+/**
+ * A {@link CsvIndex} over a single {@link CsvFieldType#INTEGER},
+ * {@link CsvFieldType#LONG} or {@link CsvFieldType#UTIL_DATE} field. The keys
+ * are kept as primitive longs (dates as milliseconds) in an open addressing
+ * table with linear probing, so neither building nor querying the index boxes
+ * any value.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvLongIndex extends CsvIndex {
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final CsvFieldType fieldType;
+	private final long[] keys;
+	/**
+	 * The first record of each slot of the table, or -1 if the slot is empty.
+	 */
+	private final int[] firstRecords;
+	private final int mask;
+	private int firstNullRecord = -1;
+
+	CsvLongIndex(CsvReader reader, int fieldIndex, CsvFieldType fieldType) {
+		super(reader);
+		this.fieldType = fieldType;
+		int recordCount = nextRecords.length;
+		int capacity = MIN_CAPACITY;
+		// Keeps the load factor at 0.5 at most
+		while (capacity < MAX_CAPACITY && capacity < recordCount * 2L) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		firstRecords = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < capacity; ++i) {
+			firstRecords[i] = -1;
+		}
+		// Backwards, so that each chain ends up in ascending order
+		for (int r = recordCount - 1; r >= 0; --r) {
+			if (reader.isNullValue(r, fieldIndex)) {
+				nextRecords[r] = firstNullRecord;
+				firstNullRecord = r;
+				continue;
+			}
+			long key = reader.getLongValue(r, fieldIndex, fieldType);
+			int slot = slot(key);
+			if (firstRecords[slot] == -1) {
+				keys[slot] = key;
+			}
+			nextRecords[r] = firstRecords[slot];
+			firstRecords[slot] = r;
+		}
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (firstRecords[slot] != -1 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	@Override
+	public int find(long key) {
+		checkValid();
+		return firstRecords[slot(key)];
+	}
+
+	@Override
+	public int[] findAll(long key) {
+		checkValid();
+		return collect(firstRecords[slot(key)]);
+	}
+
+	@Override
+	int firstRecord(Object[] key) {
+		checkKeyLength(key, 1);
+		Object value = key[0];
+		if (value instanceof String) {
+			value = reader.convertValue((String) value, fieldType);
+		}
+		if (value == null) {
+			return firstNullRecord;
+		}
+		if (value instanceof Number || value instanceof Date) {
+			return firstRecords[slot(CsvReader.toLong(value))];
+		}
+		throw new IllegalArgumentException("Invalid key value for a " + fieldType + " field: '" + value + "'.");
+	}
+
+}
@@ -0,0 +1,456 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A forward-only {@link CsvReader} that maps the file into memory and scans
+ * its bytes directly, instead of decoding every line into a {@code String}.
+ * The fragments of the current record are kept as slices of the mapped
+ * buffer, and a {@code String} is only created when a field value is
+ * requested. Just like {@link CsvBigFileReader}, the records are not kept in
+ * memory.
+ *
+ * <p>
+ * The file is mapped in windows of {@link #DEFAULT_MAPPING_SIZE} bytes, so
+ * files of any size are supported, as long as each line fits in a window. The
+ * charset must be ASCII compatible (see {@link #setCharset(Charset)}):
+ * ISO-8859-1, windows-1252, UTF-8, etc.
+ *
+ * <p>
+ * Only files can be mapped: {@link #read(InputStream)} and
+ * {@link #read(ReadableByteChannel)} throw an
+ * {@link IllegalArgumentException}, leaving the stream untouched. Streams are
+ * read by {@link CsvBigFileReader}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvMappedFileReader extends CsvReader implements Closeable {
+
+	public static final int DEFAULT_MAPPING_SIZE = 256 * 1024 * 1024;
+
+	private int mappingSize = DEFAULT_MAPPING_SIZE;
+	private int minSplitSize = CsvParallelLoader.DEFAULT_MIN_CHUNK_SIZE;
+
+	private FileChannel channel;
+	private long fileSize;
+	private MappedByteBuffer buffer;
+	private long bufferOffset;
+	private boolean bufferReachesEof;
+	private int position;
+	private CsvByteTokenizer tokenizer;
+	private boolean hasCurrent;
+	private int readCount;
+
+	public CsvMappedFileReader() {
+	}
+
+	@Override
+	public void clear() {
+		closeQuietly();
+		super.clear();
+		buffer = null;
+		tokenizer = null;
+		hasCurrent = false;
+		readCount = 0;
+	}
+
+	/**
+	 * Maps the file and reads its header (if any). The records are read on
+	 * demand by {@link #next()}.
+	 */
+	@Override
+	public void readFile(File file) throws IOException {
+		clear();
+		tokenizer = newTokenizer();
+		FileInputStream stream = new FileInputStream(file);
+		channel = stream.getChannel();
+		try {
+			fileSize = channel.size();
+			map(0L);
+			if (firstLineIsHeader && nextFragments()) {
+				List<String> fieldNames = new ArrayList<>();
+				for (int i = 0; i < tokenizer.fragmentCount(); ++i) {
+					fieldNames.add(tokenizer.getFragment(i));
+				}
+				readHeader(fieldNames);
+			}
+		} catch (IOException | RuntimeException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	private CsvByteTokenizer newTokenizer() {
+		return new CsvByteTokenizer(separator, delimiter, delimiterEscape, getCharset());
+	}
+
+	private void map(long offset) throws IOException {
+		long size = Math.min(mappingSize, fileSize - offset);
+		buffer = channel.map(MapMode.READ_ONLY, offset, size);
+		bufferOffset = offset;
+		bufferReachesEof = offset + size == fileSize;
+		position = 0;
+	}
+
+	/**
+	 * Tokenizes the next line of the file, remapping the window when the line
+	 * crosses its end.
+	 */
+	private boolean nextFragments() throws IOException {
+		if (buffer == null) {
+			return false;
+		}
+		int next = tokenizer.tokenize(buffer, position, bufferReachesEof);
+		if (next == -1 && !bufferReachesEof && position > 0) {
+			map(bufferOffset + position);
+			next = tokenizer.tokenize(buffer, position, bufferReachesEof);
+		}
+		if (next == -1 && !bufferReachesEof) {
+			throw new CsvFormatError("Record too long. Lines can't exceed " + mappingSize + " bytes.");
+		}
+		if (next == -1) {
+			close();
+			return false;
+		}
+		position = next;
+		return true;
+	}
+
+	@Override
+	public boolean next() {
+		do {
+			try {
+				hasCurrent = nextFragments();
+			} catch (IOException e) {
+				closeQuietly();
+				throw new CsvFormatError(e);
+			}
+			if (!hasCurrent) {
+				return false;
+			}
+		} while (!accept(tokenizer));
+		++currentIndex;
+		++readCount;
+		return true;
+	}
+
+	@Override
+	protected String getValue(int fieldIndex) {
+		checkCurrent();
+		String fragment = tokenizer.getFragment(fileFieldIndex(fieldIndex));
+		return fragment.isEmpty() ? null : fragment;
+	}
+
+	@Override
+	protected long getPrimitiveValue(int fieldIndex, CsvFieldType fieldType) {
+		checkCurrent();
+		checkFieldIndex(fieldIndex);
+		int fragment = fileFieldIndex(fieldIndex);
+		if (fieldType != CsvFieldType.INTEGER && fieldType != CsvFieldType.LONG || tokenizer.isEmpty(fragment)) {
+			return super.getPrimitiveValue(fieldIndex, fieldType);
+		}
+		long value = tokenizer.parseLong(fragment);
+		if (fieldType == CsvFieldType.INTEGER && (int) value != value) {
+			// Fails like Integer.parseInt
+			return Integer.parseInt(tokenizer.getFragment(fragment));
+		}
+		return value;
+	}
+
+	@Override
+	public boolean isNull(int fieldIndex) {
+		checkCurrent();
+		checkFieldIndex(fieldIndex);
+		return tokenizer.isEmpty(fileFieldIndex(fieldIndex));
+	}
+
+	private void checkCurrent() {
+		if (!hasCurrent) {
+			throw new IllegalStateException("There's no current record.");
+		}
+	}
+
+	/**
+	 * As the records are not kept in memory, returns just the number of
+	 * records read so far.
+	 */
+	@Override
+	public int recordCount() {
+		return readCount;
+	}
+
+	@Override
+	protected boolean keepsRecords() {
+		return false;
+	}
+
+	/**
+	 * Streams can't be mapped into memory, see {@link CsvBigFileReader}. The
+	 * stream is neither read nor closed.
+	 *
+	 * @throws IllegalArgumentException
+	 *             always.
+	 */
+	@Override
+	public void read(InputStream in) throws IOException {
+		throw new IllegalArgumentException("Only files can be mapped into memory.");
+	}
+
+	/**
+	 * Channels can't be mapped into memory either, see
+	 * {@link #read(InputStream)}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             always.
+	 */
+	@Override
+	public void read(ReadableByteChannel channel) throws IOException {
+		throw new IllegalArgumentException("Only files can be mapped into memory.");
+	}
+
+	/**
+	 * Returns a spliterator over the next records, see {@link #stream()}.
+	 * Traversed in sequence, it reads them with {@link #next()}, moving the
+	 * cursor. Once split by a parallel stream, it takes over the rest of the
+	 * file, which is split in byte ranges at line starts, like
+	 * {@link CsvReader#setParallelism(int)} does, and the cursor is placed at
+	 * the end. Each range is mapped and tokenized by its own thread, so the
+	 * records read from the ranges have no position (see
+	 * {@link CsvRecord#getIndex()}) and are not counted by
+	 * {@link #recordCount()}.
+	 */
+	@Override
+	public Spliterator<CsvRecord> spliterator() {
+		return new CursorSpliterator();
+	}
+
+	/**
+	 * Gives the records not read yet over to a {@link RangeSpliterator},
+	 * placing the cursor at the end of the file.
+	 *
+	 * @return the position in the file of the next record, or -1 if there's
+	 *         none, or if the first record of a file without header, which
+	 *         defines the field count, can't be tokenized in the current
+	 *         window.
+	 */
+	private long detachRemaining() {
+		if (buffer == null) {
+			return -1L;
+		}
+		if (fileFieldCount == -1) {
+			CsvByteTokenizer first = newTokenizer();
+			if (first.tokenize(buffer, position, bufferReachesEof) == -1) {
+				return -1L;
+			}
+			checkFragmentCount(first.fragmentCount());
+		}
+		long start = bufferOffset + position;
+		buffer = null;
+		hasCurrent = false;
+		return start;
+	}
+
+	void setMappingSize(int mappingSize) {
+		this.mappingSize = mappingSize;
+	}
+
+	/**
+	 * The size of the smallest byte range split by parallel streams.
+	 */
+	void setMinSplitSize(int minSplitSize) {
+		this.minSplitSize = minSplitSize;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		if (channel != null) {
+			try {
+				channel.close();
+			} finally {
+				channel = null;
+			}
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			// Nothing to do, the reader is being discarded anyway.
+		}
+	}
+
+	/**
+	 * Reads the next records through the cursor, until split.
+	 */
+	private class CursorSpliterator implements Spliterator<CsvRecord> {
+
+		private RangeSpliterator remaining;
+
+		@Override
+		public boolean tryAdvance(Consumer<? super CsvRecord> action) {
+			if (remaining != null) {
+				return remaining.tryAdvance(action);
+			}
+			if (!next()) {
+				return false;
+			}
+			action.accept(detachRecord());
+			return true;
+		}
+
+		@Override
+		public Spliterator<CsvRecord> trySplit() {
+			if (remaining == null) {
+				long start = detachRemaining();
+				if (start == -1L) {
+					return null;
+				}
+				remaining = new RangeSpliterator(channel, start, fileSize);
+			}
+			return remaining.trySplit();
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining != null ? remaining.estimateSize() : Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+
+	}
+
+	/**
+	 * Reads the records of a byte range of the file, which starts at a line
+	 * and ends after one, with its own mapping and tokenizer. The size is
+	 * estimated in bytes.
+	 */
+	private class RangeSpliterator implements Spliterator<CsvRecord> {
+
+		private final FileChannel rangeChannel;
+		/**
+		 * The position in the file of the next record.
+		 */
+		private long start;
+		private final long end;
+		private final CsvByteTokenizer rangeTokenizer = newTokenizer();
+		private MappedByteBuffer window;
+		private long windowOffset;
+		private boolean windowReachesEnd;
+		private int windowPosition;
+
+		RangeSpliterator(FileChannel rangeChannel, long start, long end) {
+			this.rangeChannel = rangeChannel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super CsvRecord> action) {
+			try {
+				while (nextLine()) {
+					if (accept(rangeTokenizer)) {
+						// Only the projected fragments are decoded
+						String[] values = new String[fieldCount];
+						for (int i = 0; i < values.length; ++i) {
+							String fragment = rangeTokenizer.getFragment(fileFieldIndex(i));
+							values[i] = fragment.isEmpty() ? null : fragment;
+						}
+						action.accept(new CsvRecord(CsvMappedFileReader.this, -1, values));
+						return true;
+					}
+				}
+				return false;
+			} catch (IOException e) {
+				throw new CsvFormatError(e);
+			}
+		}
+
+		/**
+		 * Tokenizes the next line of the range, like
+		 * {@link CsvMappedFileReader#nextFragments()}.
+		 */
+		private boolean nextLine() throws IOException {
+			if (start >= end) {
+				return false;
+			}
+			if (window == null) {
+				map(start);
+			}
+			int next = rangeTokenizer.tokenize(window, windowPosition, windowReachesEnd);
+			if (next == -1 && !windowReachesEnd && windowPosition > 0) {
+				map(windowOffset + windowPosition);
+				next = rangeTokenizer.tokenize(window, windowPosition, windowReachesEnd);
+			}
+			if (next == -1 && !windowReachesEnd) {
+				throw new CsvFormatError("Record too long. Lines can't exceed " + mappingSize + " bytes.");
+			}
+			if (next == -1) {
+				start = end;
+				window = null;
+				return false;
+			}
+			windowPosition = next;
+			start = windowOffset + next;
+			return true;
+		}
+
+		private void map(long offset) throws IOException {
+			long size = Math.min(mappingSize, end - offset);
+			window = rangeChannel.map(MapMode.READ_ONLY, offset, size);
+			windowOffset = offset;
+			windowReachesEnd = offset + size == end;
+			windowPosition = 0;
+		}
+
+		@Override
+		public Spliterator<CsvRecord> trySplit() {
+			if (window != null || end - start < minSplitSize) {
+				// Once started, the records of the window come first
+				return null;
+			}
+			long middle;
+			try {
+				middle = CsvParallelLoader.nextRecordStart(rangeChannel, end, start + (end - start) / 2);
+			} catch (IOException e) {
+				throw new CsvFormatError(e);
+			}
+			if (middle >= end) {
+				return null;
+			}
+			RangeSpliterator prefix = new RangeSpliterator(rangeChannel, start, middle);
+			start = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - start;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.googlecode.jcobs.csv;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Maps the records of a {@link CsvReader} to objects of a class, created by
+ * {@link CsvReader#mapper(Class)}. The fields of the header are bound to the
+ * fields of the class with the same name (ignoring case), or to the
+ * components of a record class, through its canonical constructor.
+ *
+ * <pre>
+ * for (Colaborador colaborador : reader.mapper(Colaborador.class)) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * <p>
+ * The bindings are resolved once, into a single method handle, so there are
+ * no reflective lookups or calls per record. The handle is kept by the mapper
+ * instance, not in a constant, so the JIT compiler can't inline it into the
+ * caller like it does with code that sets the fields by hand, which is still
+ * the fastest option in hot loops.
+ *
+ * <p>
+ * Fields of type {@link String}, <code>int</code>, {@link Integer},
+ * <code>long</code>, {@link Long} and {@link Date} are supported, and the
+ * values are converted like the getters of the reader do. Empty values are
+ * mapped to <code>null</code>, or 0 for primitive fields. Fields of the class
+ * missing in the header are left untouched, but all the components of a
+ * record must be in the header.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvMapper<T> implements Iterable<T> {
+
+	private final CsvReader reader;
+	private final Class<T> type;
+	/**
+	 * Maps the current record of the reader to a new object: a single method
+	 * handle, combining the constructor, the getters of the reader and the
+	 * setters of the fields.
+	 */
+	private final MethodHandle mapping;
+
+	CsvMapper(CsvReader reader, Class<T> type) {
+		this.reader = reader;
+		this.type = type;
+		try {
+			Object[] components = getRecordComponents(type);
+			this.mapping = components != null ? mapRecord(type, components) : mapFields(type);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Class " + type.getName() + " can't be mapped.", e);
+		}
+	}
+
+	/**
+	 * Calls the canonical constructor, with the value of each component.
+	 */
+	private MethodHandle mapRecord(Class<T> type, Object[] components) throws ReflectiveOperationException {
+		Class<?>[] types = new Class<?>[components.length];
+		MethodHandle[] getters = new MethodHandle[components.length];
+		for (int i = 0; i < components.length; ++i) {
+			Object component = components[i];
+			String name = (String) component.getClass().getMethod("getName").invoke(component);
+			types[i] = (Class<?>) component.getClass().getMethod("getType").invoke(component);
+			getters[i] = getter(reader.getFieldIndex(name), name, types[i]);
+		}
+		Constructor<T> canonical = type.getDeclaredConstructor(types);
+		canonical.setAccessible(true);
+		MethodHandle constructor = MethodHandles.lookup().unreflectConstructor(canonical);
+		constructor = MethodHandles.filterArguments(constructor.asType(constructor.type().changeReturnType(Object.class)), 0, getters);
+		// All the getters take the same reader
+		return MethodHandles.permuteArguments(constructor, MethodType.methodType(Object.class, CsvReader.class), new int[types.length]);
+	}
+
+	/**
+	 * Calls the constructor without arguments, then sets the fields found in
+	 * the header.
+	 */
+	private MethodHandle mapFields(Class<T> type) throws ReflectiveOperationException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		// (Object target, CsvReader reader) -> target
+		MethodHandle result = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, CsvReader.class);
+		for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || field.isSynthetic()) {
+					continue;
+				}
+				Integer fieldIndex = reader.fields.get(field.getName().toUpperCase());
+				if (fieldIndex == null) {
+					continue;
+				}
+				field.setAccessible(true);
+				MethodHandle setter = lookup.unreflectSetter(field);
+				setter = setter.asType(setter.type().changeParameterType(0, Object.class));
+				setter = MethodHandles.filterArguments(setter, 1, getter(fieldIndex, field.getName(), field.getType()));
+				result = MethodHandles.foldArguments(result, setter);
+			}
+		}
+		Constructor<T> noArgs;
+		try {
+			noArgs = type.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Class " + type.getName() + " must have a constructor without arguments.");
+		}
+		noArgs.setAccessible(true);
+		MethodHandle constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+		return MethodHandles.foldArguments(result, MethodHandles.dropArguments(constructor, 0, CsvReader.class));
+	}
+
+	/**
+	 * Returns a handle that reads a field of the current record, as the given
+	 * class: <code>(CsvReader) -&gt; value</code>.
+	 */
+	private static MethodHandle getter(int fieldIndex, String name, Class<?> valueClass) throws ReflectiveOperationException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		if (valueClass == int.class) {
+			MethodHandle getter = lookup.findVirtual(CsvReader.class, "getIntValue", MethodType.methodType(int.class, int.class));
+			return MethodHandles.insertArguments(getter, 1, fieldIndex);
+		}
+		if (valueClass == long.class) {
+			MethodHandle getter = lookup.findVirtual(CsvReader.class, "getLongValue", MethodType.methodType(long.class, int.class));
+			return MethodHandles.insertArguments(getter, 1, fieldIndex);
+		}
+		MethodHandle getter = lookup.findVirtual(CsvReader.class, "getAsType", MethodType.methodType(Object.class, int.class, CsvFieldType.class));
+		getter = MethodHandles.insertArguments(getter, 1, fieldIndex, toFieldType(name, valueClass));
+		return getter.asType(MethodType.methodType(valueClass, CsvReader.class));
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * Maps the current record of the reader to a new object.
+	 */
+	public T map() {
+		try {
+			return type.cast(mapping.invokeExact(reader));
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Failed to create " + type.getName() + ".", e);
+		}
+	}
+
+	/**
+	 * Maps the next records of the reader, moving its cursor.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			private boolean fetched;
+			private boolean hasNext;
+
+			@Override
+			public boolean hasNext() {
+				if (!fetched) {
+					hasNext = reader.next();
+					fetched = true;
+				}
+				return hasNext;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				fetched = false;
+				return map();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+	/**
+	 * Maps all the next records of the reader.
+	 */
+	public List<T> mapAll() {
+		List<T> result = new ArrayList<>();
+		for (T object : this) {
+			result.add(object);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the record components of a record class, without depending on
+	 * the Java version.
+	 *
+	 * @return <code>null</code> if it's not a record.
+	 */
+	private static Object[] getRecordComponents(Class<?> type) throws ReflectiveOperationException {
+		Method isRecord;
+		try {
+			isRecord = Class.class.getMethod("isRecord");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		if (!((Boolean) isRecord.invoke(type))) {
+			return null;
+		}
+		return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+	}
+
+	private static CsvFieldType toFieldType(String name, Class<?> fieldClass) {
+		if (fieldClass == String.class) {
+			return CsvFieldType.STRING;
+		}
+		if (fieldClass == int.class || fieldClass == Integer.class) {
+			return CsvFieldType.INTEGER;
+		}
+		if (fieldClass == long.class || fieldClass == Long.class) {
+			return CsvFieldType.LONG;
+		}
+		if (fieldClass == Date.class) {
+			return CsvFieldType.UTIL_DATE;
+		}
+		throw new IllegalArgumentException("Not supported type of field '" + name + "': " + fieldClass.getName() + ".");
+	}
+
+}
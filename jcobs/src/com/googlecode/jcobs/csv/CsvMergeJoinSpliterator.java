@@ -0,0 +1,174 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The records of a sort-merge join: both readers are walked in the order of
+ * the join field, and each run of records with the same key on the left is
+ * paired with the run with that key on the right. Only the current runs are
+ * pending at any time, so the memory used doesn't depend on the number of
+ * pairs.
+ *
+ * <p>
+ * The orders are taken from {@link CsvReader#getOrder(CsvSortField...)}, so
+ * the records are sorted once and the orders are shared with the sorts of
+ * {@link CsvSortableReader} and {@link CsvCursor}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvMergeJoinSpliterator implements Spliterator<CsvJoinedRecord> {
+
+	private final Side left;
+	private final Side right;
+	private final boolean stringKeys;
+	/**
+	 * The ranks of the current runs: [leftStart, leftEnd) and [rightStart,
+	 * rightEnd).
+	 */
+	private int leftStart, leftEnd, rightStart, rightEnd;
+	/**
+	 * The ranks of the next pair of the current runs.
+	 */
+	private int leftRank, rightRank;
+
+	CsvMergeJoinSpliterator(CsvReader left, int leftFieldIndex, CsvReader right, int rightFieldIndex, CsvFieldType fieldType) {
+		this.left = new Side(left, leftFieldIndex, fieldType);
+		this.right = new Side(right, rightFieldIndex, fieldType);
+		this.stringKeys = fieldType == CsvFieldType.STRING;
+		leftEnd = this.left.skipNulls();
+		rightEnd = this.right.skipNulls();
+		leftRank = leftEnd;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super CsvJoinedRecord> action) {
+		left.checkModCount();
+		right.checkModCount();
+		if (leftRank >= leftEnd && !nextRuns()) {
+			return false;
+		}
+		action.accept(new CsvJoinedRecord(left.getRecord(leftRank), right.getRecord(rightRank)));
+		if (++rightRank == rightEnd) {
+			rightRank = rightStart;
+			++leftRank;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the next runs with the same key on both sides.
+	 */
+	private boolean nextRuns() {
+		int i = leftEnd;
+		int j = rightEnd;
+		while (i < left.size && j < right.size) {
+			int res = compare(left, i, right, j);
+			if (res < 0) {
+				++i;
+			} else if (res > 0) {
+				++j;
+			} else {
+				leftStart = i;
+				leftEnd = left.runEnd(i);
+				rightStart = j;
+				rightEnd = right.runEnd(j);
+				leftRank = leftStart;
+				rightRank = rightStart;
+				return true;
+			}
+		}
+		leftRank = leftEnd = left.size;
+		rightEnd = right.size;
+		return false;
+	}
+
+	private int compare(Side side1, int rank1, Side side2, int rank2) {
+		if (stringKeys) {
+			return side1.getString(rank1).compareTo(side2.getString(rank2));
+		}
+		return Long.compare(side1.getLong(rank1), side2.getLong(rank2));
+	}
+
+	@Override
+	public Spliterator<CsvJoinedRecord> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * One of the readers of the join, in the order of its join field.
+	 */
+	private final class Side {
+
+		private final CsvReader reader;
+		private final int fieldIndex;
+		private final CsvFieldType fieldType;
+		private final int modCount;
+		private final CsvOrder order;
+		private final int size;
+
+		private Side(CsvReader reader, int fieldIndex, CsvFieldType fieldType) {
+			this.reader = reader;
+			this.fieldIndex = fieldIndex;
+			this.fieldType = fieldType;
+			this.modCount = reader.modCount;
+			this.order = reader.getOrder(new CsvSortField(fieldIndex, fieldType, true));
+			this.size = order.size();
+		}
+
+		/**
+		 * Returns the rank of the first non empty key. Empty keys come first and
+		 * don't match anything.
+		 */
+		private int skipNulls() {
+			int rank = 0;
+			while (rank < size && reader.isNullValue(order.get(rank), fieldIndex)) {
+				++rank;
+			}
+			return rank;
+		}
+
+		/**
+		 * Returns the end of the run of records with the key at the given rank.
+		 */
+		private int runEnd(int rank) {
+			int end = rank + 1;
+			while (end < size && compare(this, end, this, rank) == 0) {
+				++end;
+			}
+			return end;
+		}
+
+		private String getString(int rank) {
+			return reader.getValue(order.get(rank), fieldIndex);
+		}
+
+		private long getLong(int rank) {
+			return reader.getLongValue(order.get(rank), fieldIndex, fieldType);
+		}
+
+		private CsvRecord getRecord(int rank) {
+			return new CsvRecord(reader, order.get(rank));
+		}
+
+		private void checkModCount() {
+			if (reader.modCount != modCount) {
+				throw new ConcurrentModificationException("The records were reloaded.");
+			}
+		}
+
+	}
+
+}
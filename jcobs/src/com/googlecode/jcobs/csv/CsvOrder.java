@@ -0,0 +1,69 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Arrays;
+
+/**
+ * An order of (some of) the records of a {@link CsvReader}: their positions,
+ * in the order they are navigated. Sorting produces an order instead of
+ * moving the records, so several orders of the same records can be kept and
+ * navigated at once.
+ *
+ * <p>
+ * Orders are immutable and may be shared by threads.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+final class CsvOrder {
+
+	private final int[] records;
+	private final int recordCount;
+	/**
+	 * The rank of each record in the order, or -1: the inverse of
+	 * {@link #records}, computed when first needed.
+	 */
+	private volatile int[] ranks;
+
+	/**
+	 * @param records
+	 *            the positions of the records, in order.
+	 * @param recordCount
+	 *            the number of records of the reader.
+	 */
+	CsvOrder(int[] records, int recordCount) {
+		this.records = records;
+		this.recordCount = recordCount;
+	}
+
+	int size() {
+		return records.length;
+	}
+
+	/**
+	 * Returns the position of the record at the given rank.
+	 */
+	int get(int rank) {
+		return records[rank];
+	}
+
+	/**
+	 * Returns the rank of the record at the given position, or -1 if the
+	 * order doesn't have it, as for records added after it was computed.
+	 */
+	int rankOf(int recordIndex) {
+		if (recordIndex >= recordCount) {
+			return -1;
+		}
+		int[] result = ranks;
+		if (result == null) {
+			result = new int[recordCount];
+			Arrays.fill(result, -1);
+			for (int i = 0; i < records.length; ++i) {
+				result[records[i]] = i;
+			}
+			ranks = result;
+		}
+		return result[recordIndex];
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a CSV file into the records of a {@link CsvReader} using several
+ * threads. The file is split into byte ranges (chunks) that are parsed
+ * concurrently on a {@link ForkJoinPool}, and the results are appended to the
+ * reader in the original order.
+ *
+ * <p>
+ * Chunk edges are moved forward to the start of the next line. As records
+ * always end at a line terminator (even inside a delimited value, just like
+ * {@link java.io.BufferedReader#readLine()} does), a chunk never starts in the
+ * middle of a record or of an escaped delimiter pair.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvParallelLoader {
+
+	static final int DEFAULT_MIN_CHUNK_SIZE = 1024 * 1024;
+	private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private final CsvReader reader;
+	private final int parallelism;
+	private final int minChunkSize;
+	private final Charset charset;
+
+	private FileChannel channel;
+	private long fileSize;
+
+	CsvParallelLoader(CsvReader reader, int parallelism) {
+		this(reader, parallelism, DEFAULT_MIN_CHUNK_SIZE);
+	}
+
+	CsvParallelLoader(CsvReader reader, int parallelism, int minChunkSize) {
+		this.reader = reader;
+		this.parallelism = parallelism;
+		this.minChunkSize = minChunkSize;
+		this.charset = reader.getCharset();
+	}
+
+	void load(File file) throws IOException {
+		try (FileInputStream stream = new FileInputStream(file)) {
+			channel = stream.getChannel();
+			fileSize = channel.size();
+			long dataStart = readFirstLine();
+			if (dataStart == -1L) {
+				return;
+			}
+			List<ChunkTask> tasks = split(dataStart);
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				for (ChunkTask task : tasks) {
+					pool.execute(task);
+				}
+				for (int i = 0; i < tasks.size(); ++i) {
+					ChunkTask task = tasks.set(i, null);
+					List<String[]> chunkRecords = task.join();
+					if (task.error instanceof IOException) {
+						throw (IOException) task.error;
+					}
+					if (task.error != null) {
+						throw (CsvFormatError) task.error;
+					}
+					for (String[] record : chunkRecords) {
+						reader.addRecord(record);
+					}
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+		} finally {
+			channel = null;
+		}
+	}
+
+	/**
+	 * Reads the header, or just the fragment count when there's no header.
+	 *
+	 * @return the position of the first record, or -1 if the file is empty.
+	 */
+	private long readFirstLine() throws IOException {
+		CsvByteTokenizer tokenizer = newTokenizer();
+		long size = SCAN_BUFFER_SIZE;
+		while (true) {
+			size = Math.min(size, fileSize);
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0L, size);
+			boolean eof = size == fileSize;
+			int next = tokenizer.tokenize(buffer, 0, eof);
+			if (next != -1) {
+				if (reader.firstLineIsHeader) {
+					List<String> fieldNames = new ArrayList<>();
+					for (int i = 0; i < tokenizer.fragmentCount(); ++i) {
+						fieldNames.add(tokenizer.getFragment(i));
+					}
+					reader.readHeader(fieldNames);
+					return next;
+				}
+				reader.checkFragmentCount(tokenizer.fragmentCount());
+				return 0L;
+			}
+			if (eof) {
+				return -1L;
+			}
+			size *= 2;
+		}
+	}
+
+	private List<ChunkTask> split(long dataStart) throws IOException {
+		long chunkSize = (fileSize - dataStart) / (parallelism * CHUNKS_PER_THREAD) + 1;
+		chunkSize = Math.max(minChunkSize, Math.min(MAX_CHUNK_SIZE, chunkSize));
+		List<ChunkTask> tasks = new ArrayList<>();
+		long start = dataStart;
+		while (start < fileSize) {
+			long end = start + chunkSize;
+			end = end >= fileSize ? fileSize : nextRecordStart(channel, fileSize, end);
+			if (end - start > Integer.MAX_VALUE) {
+				throw new CsvFormatError("Record too long at position " + start + ".");
+			}
+			tasks.add(new ChunkTask(start, end));
+			start = end;
+		}
+		return tasks;
+	}
+
+	/**
+	 * Finds the first record starting at or after the given position. Also
+	 * used by {@link CsvMappedFileReader} to split its streams.
+	 */
+	static long nextRecordStart(FileChannel channel, long fileSize, long position) throws IOException {
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		// Starts at the previous byte, as the position may be the start of a line
+		long offset = position - 1;
+		while (offset < fileSize) {
+			scan.clear();
+			int read = channel.read(scan, offset);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; ++i) {
+				byte b = scan.get(i);
+				if (b == LF) {
+					return offset + i + 1;
+				}
+				if (b == CR) {
+					long lineEnd = offset + i + 1;
+					byte following = i + 1 < read ? scan.get(i + 1) : byteAt(channel, fileSize, lineEnd);
+					return following == LF ? lineEnd + 1 : lineEnd;
+				}
+			}
+			offset += read;
+		}
+		return fileSize;
+	}
+
+	private static byte byteAt(FileChannel channel, long fileSize, long position) throws IOException {
+		if (position >= fileSize) {
+			return 0;
+		}
+		ByteBuffer single = ByteBuffer.allocate(1);
+		channel.read(single, position);
+		return single.get(0);
+	}
+
+	private CsvByteTokenizer newTokenizer() {
+		return new CsvByteTokenizer(reader.separator, reader.delimiter, reader.delimiterEscape, charset);
+	}
+
+	private class ChunkTask extends RecursiveTask<List<String[]>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long start;
+		private final long end;
+		private Exception error;
+
+		ChunkTask(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected List<String[]> compute() {
+			List<String[]> result = new ArrayList<>();
+			try {
+				ByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+				CsvByteTokenizer tokenizer = newTokenizer();
+				int position = 0;
+				while ((position = tokenizer.tokenize(buffer, position, true)) != -1) {
+					if (!reader.accept(tokenizer)) {
+						continue;
+					}
+					// Only the projected fragments are decoded
+					String[] record = new String[reader.fieldCount];
+					for (int i = 0; i < record.length; ++i) {
+						String fragment = tokenizer.getFragment(reader.fileFieldIndex(i));
+						record[i] = fragment.isEmpty() ? null : fragment;
+					}
+					result.add(record);
+				}
+			} catch (CsvFormatError | IOException e) {
+				error = e;
+			}
+			return result;
+		}
+
+	}
+
+}
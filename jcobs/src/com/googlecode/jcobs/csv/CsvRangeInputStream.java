@@ -0,0 +1,51 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads at most a given number of bytes of a stream, so that the lines of a
+ * followed file are read up to the last complete one, even if more bytes are
+ * appended in the meantime. The source is not closed.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvRangeInputStream extends InputStream {
+
+	private final InputStream source;
+	private long remaining;
+
+	CsvRangeInputStream(InputStream source, long length) {
+		this.source = source;
+		this.remaining = length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (remaining <= 0) {
+			return -1;
+		}
+		int b = source.read();
+		if (b >= 0) {
+			--remaining;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (remaining <= 0) {
+			return -1;
+		}
+		int count = source.read(b, off, (int) Math.min(len, remaining));
+		if (count > 0) {
+			remaining -= count;
+		}
+		return count;
+	}
+
+}
@@ -1,19 +1,44 @@
 package com.googlecode.jcobs.csv;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 
 /**
- * TODO Support partial fetch (CsvBigFileReader?).
+ * Reads a whole CSV file into memory, allowing to navigate through its records
+ * and read the field values as typed objects. For files that don't fit in
+ * memory, see {@link CsvBigFileReader}.
+ * 
  * TODO Support more field types.
  * 
  * @author Samuel Y. Deschamps
@@ -26,31 +51,321 @@ public class CsvReader {
 	public static final char DEFAULT_DELIMITER_ESCAPE = '"';
 	public static final String DEFAULT_DATE_FORMAT = "dd/MM/yyyy";
 
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int READ_AHEAD_BUFFER_SIZE = 4 * 1024 * 1024;
+	/**
+	 * How many bytes of the start of a followed file are compared on each
+	 * poll, to find out if it was replaced.
+	 */
+	private static final int FOLLOW_SAMPLE_SIZE = 4 * 1024;
+	private static final int[] GZIP_MAGIC = { 0x1F, 0x8B };
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
 	protected char separator = DEFAULT_SEPARATOR;
 	protected char delimiter = DEFAULT_DELIMITER;
 	protected char delimiterEscape = DEFAULT_DELIMITER_ESCAPE;
-	private SimpleDateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
+	private CsvDateParser dateParser = new CsvDateParser(DEFAULT_DATE_FORMAT);
 	protected boolean firstLineIsHeader = true;
+	private int parallelism = 1;
+	private boolean columnar;
+	private boolean snapshotEnabled;
+	private Charset charset = Charset.defaultCharset();
+	private boolean readAhead;
+	private final Map<String, CsvFieldType> declaredTypesByName = new HashMap<>();
+	private final Map<Integer, CsvFieldType> declaredTypesByIndex = new HashMap<>();
+	private String[] projectedNames;
+	private int[] projectedIndexes;
+	private final Map<String, CsvFilter> filtersByName = new LinkedHashMap<>();
+	private final Map<Integer, CsvFilter> filtersByIndex = new LinkedHashMap<>();
 
 	protected Map<String, Integer> fields = new LinkedHashMap<>();
+	/**
+	 * The index of each field name given to {@link #getFieldIndex(String)},
+	 * as given, to avoid converting it to upper case at each call.
+	 */
+	private final Map<String, Integer> fieldIndexCache = new ConcurrentHashMap<>();
+	/**
+	 * The orders computed by {@link #getOrder(CsvSortField...)}, by sort
+	 * fields.
+	 */
+	private final Map<String, CsvOrder> orders = new ConcurrentHashMap<>();
 	protected int fieldCount = -1;
+	/**
+	 * The number of fragments of each line of the file. Differs from
+	 * {@link #fieldCount} when only some fields are projected.
+	 */
+	protected int fileFieldCount = -1;
+	/**
+	 * The position in the file of each projected field, or <code>null</code>
+	 * when all the fields are read.
+	 */
+	private int[] projection;
+	/**
+	 * The projected field of each fragment of the file, or -1 if the fragment
+	 * is skipped.
+	 */
+	private int[] projectionSlots;
+	/**
+	 * The filter of each fragment of the file, or <code>null</code> when there
+	 * are no filters.
+	 */
+	private CsvFilter[] fragmentFilters;
+	/**
+	 * Holds the values of a filtered line until it's accepted.
+	 */
+	private String[] pendingRecord;
 	protected List<String[]> records = new ArrayList<>();
 	protected int currentIndex = -1;
+	/**
+	 * The converted values of the typed fields, or of all the fields when using
+	 * columnar storage. Fields that are not stored by column have a
+	 * <code>null</code> entry.
+	 */
+	CsvColumn[] columns;
+	boolean storedByColumn;
+	private boolean storagePrepared;
+	/**
+	 * Incremented whenever the records are reloaded or appended, invalidating
+	 * the indexes and orders created so far.
+	 */
+	int modCount;
+	/**
+	 * The file followed by {@link #follow(File)}, or <code>null</code>.
+	 */
+	private File followedFile;
+	/**
+	 * The position in the followed file after the last line read.
+	 */
+	private long followedOffset;
+	/**
+	 * The key of the followed file (like its inode), if the file system has
+	 * them, and the hash of its first bytes already read.
+	 */
+	private Object followedFileKey;
+	private long followedHash;
+	/**
+	 * The dataset sharing the loaded records, which can't be changed anymore.
+	 */
+	private CsvDataset dataset;
 
 	public CsvReader() {
 	}
 
 	public void clear() {
+		checkNotShared();
+		followedFile = null;
+		followedOffset = 0;
+		followedFileKey = null;
+		followedHash = 0;
 		fields.clear();
+		fieldIndexCache.clear();
+		orders.clear();
 		records.clear();
+		columns = null;
+		storedByColumn = false;
+		storagePrepared = false;
 		fieldCount = -1;
+		fileFieldCount = -1;
+		projection = null;
+		projectionSlots = null;
+		fragmentFilters = null;
+		pendingRecord = null;
 		currentIndex = -1;
+		++modCount;
 	}
 
 	public void readFile(File file) throws IOException {
 		clear();
-		FileReader reader = new FileReader(file);
-		BufferedReader bufReader = new BufferedReader(reader);
+		// Filters can't be compared, so the snapshot wouldn't be validated
+		boolean useSnapshot = snapshotEnabled && filtersByName.isEmpty() && filtersByIndex.isEmpty();
+		CsvSnapshot snapshot = useSnapshot ? new CsvSnapshot(this, file) : null;
+		if (snapshot != null && snapshot.load()) {
+			return;
+		}
+		if (parallelism > 1 && isAsciiCompatible(charset) && !isGzipFile(file)) {
+			new CsvParallelLoader(this, parallelism).load(file);
+		} else {
+			readLines(openReader(file));
+		}
+		endRead();
+		if (snapshot != null && recordCount() > 0) {
+			snapshot.save();
+		}
+	}
+
+	/**
+	 * Reads all the records of a stream, decoded with the charset of the
+	 * reader (see {@link #setCharset(Charset)}). Gzip compressed streams are
+	 * detected and decompressed on a background thread, while the records
+	 * are parsed. The stream is closed at the end.
+	 */
+	public void read(InputStream in) throws IOException {
+		clear();
+		readLines(openReader(in));
+		endRead();
+	}
+
+	/**
+	 * Reads all the records of a channel, like {@link #read(InputStream)}.
+	 */
+	public void read(ReadableByteChannel channel) throws IOException {
+		read(Channels.newInputStream(channel));
+	}
+
+	/**
+	 * Reads a file that is still being written, like {@link #readFile(File)},
+	 * and keeps following it: each call to {@link #poll()} reads just the
+	 * records appended since the previous one. The reader remembers where the
+	 * last complete line of the file ends, so a last line without a line
+	 * break is taken as partially written, and is read only once complete.
+	 *
+	 * <pre>
+	 * reader.follow(file);
+	 * // Every few minutes, or on each change of the file (see CsvFileWatcher)
+	 * int added = reader.poll();
+	 * </pre>
+	 *
+	 * The charset of the file must be ASCII compatible, like UTF-8 or
+	 * ISO-8859-1, and the file can't be compressed. Reading another file, or
+	 * clearing the reader, stops following the file.
+	 *
+	 * @see CsvFileWatcher
+	 */
+	public void follow(File file) throws IOException {
+		checkRandomAccess();
+		if (!isAsciiCompatible(charset)) {
+			throw new UnsupportedOperationException("Only files in an ASCII compatible charset can be followed.");
+		}
+		if (isGzipFile(file)) {
+			throw new UnsupportedOperationException("Compressed files can't be followed.");
+		}
+		clear();
+		followedFile = file;
+		poll();
+	}
+
+	/**
+	 * Returns the file being followed, or <code>null</code>.
+	 *
+	 * @see #follow(File)
+	 */
+	public File getFollowedFile() {
+		return followedFile;
+	}
+
+	/**
+	 * Reads the complete lines appended to the followed file since the last
+	 * poll. Only the new bytes are read, so the cost of a poll depends on the
+	 * size of the new records, not of the whole file.
+	 *
+	 * <p>
+	 * The file is read again from the start if it got shorter, if it's another
+	 * file (its key, like the inode on Unix, changed, when the file system has
+	 * file keys) or if its first bytes already read (up to 4 KB) changed. A
+	 * file rewritten in place with the same first bytes, and not shorter than
+	 * before, is taken as the same file with new lines.
+	 *
+	 * <p>
+	 * Like reloading the records, adding records invalidates the indexes and
+	 * the sorts computed so far. If a line is invalid, or the file can't be
+	 * read, the records before it are kept and the reader stops following the
+	 * file ({@link #getFollowedFile()} returns <code>null</code>): the
+	 * position of the next line is unknown, so it must be followed again.
+	 *
+	 * @return the number of records added.
+	 */
+	public int poll() throws IOException {
+		if (followedFile == null) {
+			throw new IllegalStateException("No file is being followed.");
+		}
+		checkNotShared();
+		try (FileChannel channel = FileChannel.open(followedFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			Object fileKey = Files.readAttributes(followedFile.toPath(), BasicFileAttributes.class).fileKey();
+			if (followedOffset > 0 && (size < followedOffset || fileKey != null && !fileKey.equals(followedFileKey)
+					|| hashStart(channel, followedOffset) != followedHash)) {
+				File file = followedFile;
+				clear();
+				followedFile = file;
+			}
+			long end = lastLineEnd(channel, followedOffset, size);
+			if (end == followedOffset) {
+				return 0;
+			}
+			int previousCount = recordCount();
+			channel.position(followedOffset);
+			BufferedReader bufReader = new BufferedReader(new InputStreamReader(new CsvRangeInputStream(
+					Channels.newInputStream(channel), end - followedOffset), charset), READ_BUFFER_SIZE);
+			boolean complete = false;
+			try {
+				String line;
+				if (followedOffset == 0 && firstLineIsHeader) {
+					readHeader(bufReader.readLine());
+				}
+				while ((line = bufReader.readLine()) != null) {
+					readRecord(line);
+				}
+				followedOffset = end;
+				followedFileKey = fileKey;
+				followedHash = hashStart(channel, end);
+				complete = true;
+			} finally {
+				if (!complete) {
+					followedFile = null;
+				}
+				// Even the records added before a failure invalidate the indexes
+				if (recordCount() != previousCount) {
+					orders.clear();
+					++modCount;
+				}
+			}
+			return recordCount() - previousCount;
+		}
+	}
+
+	/**
+	 * Returns the hash of the first bytes of the file, up to the given
+	 * position.
+	 */
+	private static long hashStart(FileChannel channel, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FOLLOW_SAMPLE_SIZE, end));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0) {
+				throw new EOFException("The file was truncated while being read.");
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array());
+		return crc.getValue();
+	}
+
+	/**
+	 * Returns the position after the last line break of a part of the file,
+	 * or its start if it has none.
+	 */
+	private static long lastLineEnd(FileChannel channel, long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_SIZE, end - start));
+		long position = end;
+		while (position > start) {
+			int length = (int) Math.min(buffer.capacity(), position - start);
+			position -= length;
+			buffer.clear();
+			buffer.limit(length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException("The file was truncated while being read.");
+				}
+			}
+			for (int i = length - 1; i >= 0; --i) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+		}
+		return start;
+	}
+
+	private void readLines(BufferedReader bufReader) throws IOException {
 		try {
 			String line = bufReader.readLine();
 			if (line == null) {
@@ -58,42 +373,405 @@ public class CsvReader {
 			}
 			if (firstLineIsHeader) {
 				readHeader(line);
+			} else {
+				readRecord(line);
 			}
 			while ((line = bufReader.readLine()) != null) {
 				readRecord(line);
 			}
 		} finally {
 			bufReader.close();
-			reader.close();
 		}
 	}
 
-	private void readHeader(String line) {
-		List<String> fieldNames = readFragments(line);
+	/**
+	 * Opens a file for reading lines, like {@link #openReader(InputStream)}.
+	 * In read ahead mode, the file is read by a background thread.
+	 */
+	BufferedReader openReader(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		return decode(readAhead ? new CsvAsyncInputStream(in.getChannel(), READ_AHEAD_BUFFER_SIZE, 2) : in);
+	}
+
+	/**
+	 * Opens a stream for reading lines, decompressing it if it's gzip
+	 * compressed. In read ahead mode, the stream is read by a background
+	 * thread.
+	 */
+	BufferedReader openReader(InputStream in) throws IOException {
+		return decode(readAhead ? new CsvAsyncInputStream(in) : in);
+	}
+
+	private BufferedReader decode(InputStream in) throws IOException {
+		try {
+			InputStream source = in.markSupported() ? in : new BufferedInputStream(in, READ_BUFFER_SIZE);
+			source.mark(2);
+			boolean gzip = source.read() == GZIP_MAGIC[0] && source.read() == GZIP_MAGIC[1];
+			source.reset();
+			if (gzip) {
+				source = new CsvAsyncInputStream(new GZIPInputStream(source, READ_BUFFER_SIZE));
+			}
+			return new BufferedReader(new InputStreamReader(source, charset), READ_BUFFER_SIZE);
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private static boolean isGzipFile(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return in.read() == GZIP_MAGIC[0] && in.read() == GZIP_MAGIC[1];
+		}
+	}
+
+	/**
+	 * Whether the line breaks and ASCII characters of the charset are single
+	 * ASCII bytes, so that the file can be split into lines before decoding.
+	 */
+	static boolean isAsciiCompatible(Charset charset) {
+		String sample = "\r\n;\"azAZ09";
+		return Arrays.equals(sample.getBytes(charset), sample.getBytes(US_ASCII));
+	}
+
+	protected void readHeader(String line) {
+		readHeader(readFragments(line));
+	}
+
+	protected void readHeader(List<String> fieldNames) {
 		for (String name : fieldNames) {
 			if (name.isEmpty()) {
 				throw new CsvFormatError("Empty fieldname!");
 			}
-			fields.put(name.toUpperCase(), fields.size());
+		}
+		resolveProjection(fieldNames, fieldNames.size());
+		resolveFilters(fieldNames, fieldNames.size());
+		if (projection == null) {
+			for (String name : fieldNames) {
+				fields.put(name.toUpperCase(), fields.size());
+			}
+			fileFieldCount = fields.size();
+		} else {
+			for (int fileIndex : projection) {
+				fields.put(fieldNames.get(fileIndex).toUpperCase(), fields.size());
+			}
+			fileFieldCount = fieldNames.size();
 		}
 		fieldCount = fields.size();
 	}
 
+	/**
+	 * Finds the position in the file of the projected fields.
+	 *
+	 * @param fieldNames
+	 *            the header of the file, or <code>null</code> if it has none.
+	 */
+	private void resolveProjection(List<String> fieldNames, int fragmentCount) {
+		if (projectedNames != null) {
+			if (fieldNames == null) {
+				throw new IllegalStateException("Fields can only be projected by name in files with header.");
+			}
+			Map<String, Integer> fileIndexes = mapFileIndexes(fieldNames);
+			projection = new int[projectedNames.length];
+			for (int i = 0; i < projectedNames.length; ++i) {
+				projection[i] = getFileIndex(fileIndexes, projectedNames[i]);
+			}
+		} else if (projectedIndexes != null) {
+			projection = projectedIndexes.clone();
+			for (int fileIndex : projection) {
+				if (fileIndex < 0 || fileIndex >= fragmentCount) {
+					throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fileIndex, fragmentCount - 1));
+				}
+			}
+		} else {
+			return;
+		}
+		projectionSlots = new int[fragmentCount];
+		Arrays.fill(projectionSlots, -1);
+		for (int i = 0; i < projection.length; ++i) {
+			if (projectionSlots[projection[i]] != -1) {
+				throw new IllegalArgumentException("Field projected twice: " + projection[i] + ".");
+			}
+			projectionSlots[projection[i]] = i;
+		}
+	}
+
+	/**
+	 * Finds the filter of each fragment of the file. Filters of the same field
+	 * are combined.
+	 *
+	 * @param fieldNames
+	 *            the header of the file, or <code>null</code> if it has none.
+	 */
+	private void resolveFilters(List<String> fieldNames, int fragmentCount) {
+		if (filtersByName.isEmpty() && filtersByIndex.isEmpty()) {
+			return;
+		}
+		fragmentFilters = new CsvFilter[fragmentCount];
+		for (Map.Entry<Integer, CsvFilter> entry : filtersByIndex.entrySet()) {
+			int fileIndex = entry.getKey();
+			if (fileIndex >= fragmentCount) {
+				throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fileIndex, fragmentCount - 1));
+			}
+			fragmentFilters[fileIndex] = entry.getValue();
+		}
+		if (filtersByName.isEmpty()) {
+			return;
+		}
+		if (fieldNames == null) {
+			throw new IllegalStateException("Fields can only be filtered by name in files with header.");
+		}
+		Map<String, Integer> fileIndexes = mapFileIndexes(fieldNames);
+		for (Map.Entry<String, CsvFilter> entry : filtersByName.entrySet()) {
+			int fileIndex = getFileIndex(fileIndexes, entry.getKey());
+			fragmentFilters[fileIndex] = AndFilter.of(fragmentFilters[fileIndex], entry.getValue());
+		}
+	}
+
+	private static Map<String, Integer> mapFileIndexes(List<String> fieldNames) {
+		Map<String, Integer> fileIndexes = new HashMap<>();
+		for (int i = fieldNames.size() - 1; i >= 0; --i) {
+			fileIndexes.put(fieldNames.get(i).toUpperCase(), i);
+		}
+		return fileIndexes;
+	}
+
+	private static int getFileIndex(Map<String, Integer> fileIndexes, String fieldName) {
+		Integer fileIndex = fileIndexes.get(fieldName);
+		if (fileIndex == null) {
+			throw new CsvFormatError("Field not found: '" + fieldName + "'.");
+		}
+		return fileIndex;
+	}
+
+	/**
+	 * Whether the line tokenized by the tokenizer passes the filters. Like
+	 * {@link #parseRecord(String)}, the fragment count is checked only when the
+	 * line is accepted.
+	 */
+	boolean accept(CsvByteTokenizer tokenizer) {
+		int fragmentCount = tokenizer.fragmentCount();
+		if (fileFieldCount == -1) {
+			// First line of a file without header, defines the filters
+			checkFragmentCount(fragmentCount);
+		}
+		if (fragmentFilters != null) {
+			for (int i = 0; i < fragmentFilters.length && i < fragmentCount; ++i) {
+				if (fragmentFilters[i] != null) {
+					String fragment = tokenizer.getFragment(i);
+					if (!fragmentFilters[i].accept(fragment.isEmpty() ? null : fragment)) {
+						return false;
+					}
+				}
+			}
+		}
+		checkFragmentCount(fragmentCount);
+		return true;
+	}
+
+	/**
+	 * Returns the position in the file of a (projected) field.
+	 */
+	int fileFieldIndex(int fieldIndex) {
+		return projection == null ? fieldIndex : projection[fieldIndex];
+	}
+
 	private void readRecord(String line) {
+		String[] record = parseRecord(line);
+		if (record != null) {
+			addRecord(record);
+		}
+	}
+
+	/**
+	 * Stores a record read from the file, as a {@code String[]} or into the
+	 * columns when using columnar storage. The values of typed fields are
+	 * converted here, once, and kept in their columns.
+	 */
+	protected void addRecord(String[] record) {
+		if (!storagePrepared) {
+			prepareStorage();
+		}
+		if (!storedByColumn) {
+			records.add(record);
+		}
+		if (columns != null) {
+			for (int i = 0; i < fieldCount; ++i) {
+				if (columns[i] != null) {
+					columns[i].add(record[i]);
+				}
+			}
+		}
+	}
+
+	void prepareStorage() {
+		storedByColumn = columnar;
+		CsvFieldType[] fieldTypes = resolveFieldTypes();
+		CsvColumn[] result = new CsvColumn[fieldCount];
+		boolean anyColumn = false;
+		for (int i = 0; i < fieldCount; ++i) {
+			if (storedByColumn || fieldTypes[i] != CsvFieldType.STRING) {
+				result[i] = CsvColumn.create(fieldTypes[i], this);
+				anyColumn = true;
+			}
+		}
+		columns = anyColumn ? result : null;
+		storagePrepared = true;
+	}
+
+	/**
+	 * Called when all the records have been read.
+	 */
+	protected void endRead() {
+		if (columns != null) {
+			for (CsvColumn column : columns) {
+				if (column != null) {
+					column.trim();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the declared type of each field. Not declared fields are
+	 * {@link CsvFieldType#STRING}.
+	 */
+	protected CsvFieldType[] resolveFieldTypes() {
+		CsvFieldType[] result = new CsvFieldType[fieldCount];
+		Arrays.fill(result, CsvFieldType.STRING);
+		for (Map.Entry<Integer, CsvFieldType> entry : declaredTypesByIndex.entrySet()) {
+			int fieldIndex = entry.getKey();
+			if (fieldIndex >= fieldCount) {
+				throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fieldIndex, fieldCount - 1));
+			}
+			result[fieldIndex] = entry.getValue();
+		}
+		for (Map.Entry<String, CsvFieldType> entry : declaredTypesByName.entrySet()) {
+			result[getFieldIndex(entry.getKey())] = entry.getValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a line of the file into a record.
+	 *
+	 * @return the record, or <code>null</code> if it was rejected by a filter.
+	 */
+	protected String[] parseRecord(String line) {
+		if (fileFieldCount != -1 && (projectionSlots != null || fragmentFilters != null)) {
+			return parseSelectedRecord(line);
+		}
 		List<String> fieldValues = readFragments(line);
-		if (fieldCount == -1) {
-			fieldCount = fieldValues.size();
-		} else {
-			if (fieldValues.size() != fieldCount) {
-				throw new CsvFormatError(String.format("Record with %d fragments. Expecting %d.", fieldValues.size(), fieldCount));
+		checkFragmentCount(fieldValues.size());
+		if (fragmentFilters != null) {
+			for (int i = 0; i < fragmentFilters.length; ++i) {
+				String fragment = fieldValues.get(i);
+				if (fragmentFilters[i] != null && !fragmentFilters[i].accept(fragment.isEmpty() ? null : fragment)) {
+					return null;
+				}
 			}
 		}
 		String[] record = new String[fieldCount];
 		for (int i = 0; i < fieldCount; ++i) {
-			String fragment = fieldValues.get(i);
+			String fragment = fieldValues.get(fileFieldIndex(i));
 			record[i] = fragment.isEmpty() ? null : fragment;
 		}
-		records.add(record);
+		return record;
+	}
+
+	/**
+	 * Same as {@link #readFragments(String)}, but only the projected and the
+	 * filtered fragments are copied. The others are just scanned for
+	 * separators and delimiters. The filters are applied as soon as their
+	 * fragments end, and the rest of a rejected line is not even scanned.
+	 */
+	private String[] parseSelectedRecord(String line) {
+		String[] record;
+		if (fragmentFilters == null) {
+			record = new String[fieldCount];
+		} else {
+			if (pendingRecord == null) {
+				pendingRecord = new String[fieldCount];
+			}
+			record = pendingRecord;
+		}
+		StringBuilder value = new StringBuilder();
+		boolean insideStr = false;
+		int fragment = 0;
+		int slot = projectionSlot(0);
+		CsvFilter filter = fragmentFilter(0);
+		boolean copy = slot != -1 || filter != null;
+		for (int i = 0; i < line.length(); ++i) {
+			char c = line.charAt(i);
+			if (insideStr && c == delimiterEscape && i + 1 < line.length() && line.charAt(i + 1) == delimiter) {
+				if (copy) {
+					value.append(delimiter);
+				}
+				++i;
+				continue;
+			}
+			if (c == delimiter) {
+				insideStr = !insideStr;
+				continue;
+			}
+			if (c == separator && !insideStr) {
+				if (copy && !endFragment(record, slot, filter, value)) {
+					return null;
+				}
+				++fragment;
+				slot = projectionSlot(fragment);
+				filter = fragmentFilter(fragment);
+				copy = slot != -1 || filter != null;
+				continue;
+			}
+			if (copy) {
+				value.append(c);
+			}
+		}
+		if (copy && !endFragment(record, slot, filter, value)) {
+			return null;
+		}
+		checkFragmentCount(fragment + 1);
+		return record == pendingRecord ? record.clone() : record;
+	}
+
+	private boolean endFragment(String[] record, int slot, CsvFilter filter, StringBuilder value) {
+		String fragment = value.length() == 0 ? null : value.toString();
+		value.setLength(0);
+		if (filter != null && !filter.accept(fragment)) {
+			return false;
+		}
+		if (slot != -1) {
+			record[slot] = fragment;
+		}
+		return true;
+	}
+
+	private int projectionSlot(int fragment) {
+		if (fragment >= fileFieldCount) {
+			return -1;
+		}
+		return projectionSlots == null ? fragment : projectionSlots[fragment];
+	}
+
+	private CsvFilter fragmentFilter(int fragment) {
+		return fragmentFilters == null || fragment >= fragmentFilters.length ? null : fragmentFilters[fragment];
+	}
+
+	/**
+	 * Checks the number of fragments of a line of the file. The first line of
+	 * a file without header defines it.
+	 */
+	protected void checkFragmentCount(int fragmentCount) {
+		if (fileFieldCount == -1) {
+			fileFieldCount = fragmentCount;
+			resolveProjection(null, fragmentCount);
+			resolveFilters(null, fragmentCount);
+			fieldCount = projection != null ? projection.length : fragmentCount;
+		} else {
+			if (fragmentCount != fileFieldCount) {
+				throw new CsvFormatError(String.format("Record with %d fragments. Expecting %d.", fragmentCount, fileFieldCount));
+			}
+		}
 	}
 
 	private List<String> readFragments(String line) {
@@ -124,14 +802,117 @@ public class CsvReader {
 
 	protected int getFieldIndex(String fieldName) {
 		assert firstLineIsHeader : "For CSV files without header, values must be read by index.";
-		fieldName = fieldName.toUpperCase();
-		Integer fieldIndex = fields.get(fieldName);
+		Integer fieldIndex = fieldIndexCache.get(fieldName);
+		if (fieldIndex != null) {
+			return fieldIndex;
+		}
+		String upperCaseName = fieldName.toUpperCase();
+		fieldIndex = fields.get(upperCaseName);
 		if (fieldIndex == null) {
-			throw new CsvFormatError("Field not found: '" + fieldName + "'.");
+			throw new CsvFormatError("Field not found: '" + upperCaseName + "'.");
 		}
+		fieldIndexCache.put(fieldName, fieldIndex);
 		return fieldIndex;
 	}
 
+	/**
+	 * Resolves a field by name, returning a handle that reads its values
+	 * without looking up the name again. Must be called after the header is
+	 * read.
+	 *
+	 * @see CsvField
+	 */
+	public <T> CsvField<T> field(String fieldName, CsvFieldType fieldType) {
+		return new CsvField<>(this, fieldName, getFieldIndex(fieldName), fieldType);
+	}
+
+	/**
+	 * Resolves a field by index.
+	 *
+	 * @see #field(String, CsvFieldType)
+	 */
+	public <T> CsvField<T> field(int fieldIndex, CsvFieldType fieldType) {
+		checkFieldIndex(fieldIndex);
+		return new CsvField<>(this, null, fieldIndex, fieldType);
+	}
+
+	/**
+	 * Creates a mapper of the records to objects of the given class, binding
+	 * the fields of the header to the fields of the class. Must be called
+	 * after the header is read.
+	 *
+	 * @see CsvMapper
+	 */
+	public <T> CsvMapper<T> mapper(Class<T> type) {
+		return new CsvMapper<>(this, type);
+	}
+
+	/**
+	 * Returns a sequential stream of the records. When the records are kept in
+	 * memory, the stream has all of them, whatever the position of the cursor,
+	 * and doesn't move it. Otherwise, it reads the next records, moving the
+	 * cursor, and each record is detached from the reader, keeping a copy of
+	 * its values.
+	 *
+	 * <pre>
+	 * long count = reader.stream().filter(r -&gt; r.isNull(&quot;codigoGerente&quot;)).count();
+	 * </pre>
+	 *
+	 * The records must not be reloaded while the stream is consumed.
+	 *
+	 * @see CsvRecord
+	 */
+	public Stream<CsvRecord> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a parallel stream of the records, processed by the common
+	 * fork-join pool. Records kept in memory are split in even ranges, and
+	 * {@link CsvMappedFileReader} splits the rest of its file in byte ranges.
+	 * The others are read in sequence and handed over to the pool in batches:
+	 * {@link CsvBigFileReader} reads a stream, maybe compressed, which can't
+	 * be read from the middle, and {@link CsvExternalSortReader} merges its
+	 * runs in order.
+	 *
+	 * @see #stream()
+	 */
+	public Stream<CsvRecord> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Returns a spliterator over the records, see {@link #stream()} and
+	 * {@link #parallelStream()}.
+	 */
+	public Spliterator<CsvRecord> spliterator() {
+		if (keepsRecords()) {
+			return new CsvRecordSpliterator(this, 0, recordCount());
+		}
+		return new Spliterators.AbstractSpliterator<CsvRecord>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super CsvRecord> action) {
+				if (!next()) {
+					return false;
+				}
+				action.accept(detachRecord());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Copies the values of the current record, so that they can be read after
+	 * the cursor is moved.
+	 */
+	CsvRecord detachRecord() {
+		String[] values = new String[fieldCount];
+		for (int i = 0; i < fieldCount; ++i) {
+			values[i] = getValue(i);
+		}
+		return new CsvRecord(this, currentIndex, values);
+	}
+
 	public String getString(String fieldName) {
 		return getAsType(fieldName, CsvFieldType.STRING);
 	}
@@ -164,6 +945,45 @@ public class CsvReader {
 		return getAsType(fieldIndex, CsvFieldType.UTIL_DATE);
 	}
 
+	/**
+	 * Returns the value of an integer field as an <code>int</code>, without
+	 * creating any object. Empty values are returned as 0, see
+	 * {@link #isNull(String)}.
+	 */
+	public int getIntValue(String fieldName) {
+		return getIntValue(getFieldIndex(fieldName));
+	}
+
+	public int getIntValue(int fieldIndex) {
+		return (int) getPrimitiveValue(fieldIndex, CsvFieldType.INTEGER);
+	}
+
+	/**
+	 * Returns the value of a long field as a <code>long</code>, without
+	 * creating any object. Empty values are returned as 0, see
+	 * {@link #isNull(String)}.
+	 */
+	public long getLongValue(String fieldName) {
+		return getLongValue(getFieldIndex(fieldName));
+	}
+
+	public long getLongValue(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.LONG);
+	}
+
+	/**
+	 * Returns the value of a date field as milliseconds since the epoch, like
+	 * {@link Date#getTime()}, without creating any object. Empty values are
+	 * returned as 0, see {@link #isNull(String)}.
+	 */
+	public long getDateMillis(String fieldName) {
+		return getDateMillis(getFieldIndex(fieldName));
+	}
+
+	public long getDateMillis(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.UTIL_DATE);
+	}
+
 	public int fieldCount() {
 		return fields.size();
 	}
@@ -178,20 +998,282 @@ public class CsvReader {
 		if (fieldIndex >= fieldCount) {
 			throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fieldIndex, fieldCount - 1));
 		}
-		String value = records.get(currentIndex)[fieldIndex];
+		if (keepsRecords()) {
+			return getAsType(currentIndex, fieldIndex, fieldType);
+		}
+		String value = getValue(fieldIndex);
 		return (T) convertValue(value, fieldType);
 	}
 
+	/**
+	 * Returns a value of any loaded record, converted to the given type.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T getAsType(int recordIndex, int fieldIndex, CsvFieldType fieldType) {
+		if (columns != null && columns[fieldIndex] != null && columns[fieldIndex].getType() == fieldType) {
+			return (T) columns[fieldIndex].getValue(recordIndex);
+		}
+		return (T) convertValue(getValue(recordIndex, fieldIndex), fieldType);
+	}
+
+	protected String getValue(int fieldIndex) {
+		return getValue(currentIndex, fieldIndex);
+	}
+
+	/**
+	 * Returns a value of the current record as a <code>long</code> (dates as
+	 * milliseconds), taken from its typed column or parsed from the stored
+	 * string, without converting it to an object. Empty values are returned
+	 * as 0.
+	 */
+	protected long getPrimitiveValue(int fieldIndex, CsvFieldType fieldType) {
+		checkFieldIndex(fieldIndex);
+		if (keepsRecords()) {
+			return getPrimitiveValue(currentIndex, fieldIndex, fieldType);
+		}
+		String value = getValue(fieldIndex);
+		return value == null ? 0 : parsePrimitiveValue(value, fieldType);
+	}
+
+	/**
+	 * Returns a value of any loaded record as a <code>long</code>, like
+	 * {@link #getPrimitiveValue(int, CsvFieldType)}.
+	 */
+	long getPrimitiveValue(int recordIndex, int fieldIndex, CsvFieldType fieldType) {
+		CsvColumn column = columns != null ? columns[fieldIndex] : null;
+		if (column instanceof CsvIntegerColumn && fieldType != CsvFieldType.UTIL_DATE) {
+			return column.isNull(recordIndex) ? 0 : ((CsvIntegerColumn) column).getInt(recordIndex);
+		}
+		if (column instanceof CsvLongColumn && column.getType() == fieldType) {
+			return column.isNull(recordIndex) ? 0 : ((CsvLongColumn) column).getLong(recordIndex);
+		}
+		String value = getValue(recordIndex, fieldIndex);
+		return value == null ? 0 : parsePrimitiveValue(value, fieldType);
+	}
+
+	long parsePrimitiveValue(String value, CsvFieldType fieldType) {
+		switch (fieldType) {
+		case INTEGER:
+			return Integer.parseInt(value);
+		case LONG:
+			return Long.parseLong(value);
+		case UTIL_DATE:
+			try {
+				return dateParser.parseMillis(value);
+			} catch (ParseException e) {
+				throw new CsvFormatError(e);
+			}
+		default:
+			throw new IllegalArgumentException("Not a numeric field type: '" + fieldType + "'.");
+		}
+	}
+
+	protected String getValue(int recordIndex, int fieldIndex) {
+		if (storedByColumn) {
+			return columns[fieldIndex].getString(recordIndex);
+		}
+		return records.get(recordIndex)[fieldIndex];
+	}
+
+	/**
+	 * Returns the order of the records by the given fields, sorting them the
+	 * first time it's asked for. The records are not moved: orders are cached
+	 * until the records are reloaded, so switching between them is immediate.
+	 */
+	CsvOrder getOrder(CsvSortField... sortFields) {
+		if (sortFields.length == 0) {
+			throw new IllegalArgumentException("At least one sort field is required.");
+		}
+		StringBuilder key = new StringBuilder();
+		for (CsvSortField field : sortFields) {
+			int fieldIndex = field.getFieldName() != null ? getFieldIndex(field.getFieldName()) : field.getFieldIndex();
+			checkFieldIndex(fieldIndex);
+			key.append(fieldIndex).append(' ').append(field.getFieldType()).append(field.isAsc() ? " asc;" : " desc;");
+		}
+		String orderKey = key.toString();
+		CsvOrder order = orders.get(orderKey);
+		if (order == null) {
+			int recordCount = recordCount();
+			// Sorted outside of the map, so that other orders are not blocked
+			order = new CsvOrder(new CsvRecordSorter(this, sortFields).sort(recordCount), recordCount);
+			CsvOrder previous = orders.putIfAbsent(orderKey, order);
+			if (previous != null) {
+				order = previous;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Whether the value is <code>null</code>, without converting it.
+	 */
+	boolean isNullValue(int recordIndex, int fieldIndex) {
+		if (columns != null && columns[fieldIndex] != null) {
+			return columns[fieldIndex].isNull(recordIndex);
+		}
+		return records.get(recordIndex)[fieldIndex] == null;
+	}
+
+	/**
+	 * Returns a non <code>null</code> value of an integer, long or date field
+	 * as a long (dates as milliseconds), taken from its typed column when the
+	 * field was declared with the same type.
+	 */
+	long getLongValue(int recordIndex, int fieldIndex, CsvFieldType fieldType) {
+		CsvColumn column = columns != null ? columns[fieldIndex] : null;
+		if (column instanceof CsvLongColumn && column.getType() == fieldType) {
+			return ((CsvLongColumn) column).getLong(recordIndex);
+		}
+		if (column instanceof CsvIntegerColumn && fieldType == CsvFieldType.INTEGER) {
+			return ((CsvIntegerColumn) column).getInt(recordIndex);
+		}
+		return toLong(convertValue(getValue(recordIndex, fieldIndex), fieldType));
+	}
+
+	static long toLong(Object value) {
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+		return ((Number) value).longValue();
+	}
+
+	/**
+	 * Creates a hash index over a field of the loaded records, by name. Integer,
+	 * long and date fields are indexed by their converted values, string fields
+	 * by the values as they are in the file.
+	 *
+	 * @see CsvIndex
+	 */
+	public CsvIndex createIndex(String fieldName, CsvFieldType fieldType) {
+		return createIndex(getFieldIndex(fieldName), fieldType);
+	}
+
+	/**
+	 * Creates a hash index over a field of the loaded records, by index.
+	 *
+	 * @see #createIndex(String, CsvFieldType)
+	 */
+	public CsvIndex createIndex(int fieldIndex, CsvFieldType fieldType) {
+		checkRandomAccess();
+		checkFieldIndex(fieldIndex);
+		if (fieldType == CsvFieldType.STRING) {
+			return new CsvHashIndex(this, fieldIndex);
+		}
+		return new CsvLongIndex(this, fieldIndex, fieldType);
+	}
+
+	/**
+	 * Creates a hash index over several fields of the loaded records, compared
+	 * as strings. The keys given to the index have one value per field, in the
+	 * same order.
+	 */
+	public CsvIndex createIndex(String... fieldNames) {
+		checkRandomAccess();
+		if (fieldNames.length == 0) {
+			throw new IllegalArgumentException("At least one field must be indexed.");
+		}
+		int[] fieldIndexes = new int[fieldNames.length];
+		for (int i = 0; i < fieldNames.length; ++i) {
+			fieldIndexes[i] = getFieldIndex(fieldNames[i]);
+		}
+		return new CsvHashIndex(this, fieldIndexes);
+	}
+
+	/**
+	 * Moves the cursor to the first record with the given key.
+	 *
+	 * @return <code>false</code> if there's no record with the key. The cursor
+	 *         is not moved in this case.
+	 */
+	public boolean lookup(CsvIndex index, Object... key) {
+		if (index.reader != this) {
+			throw new IllegalArgumentException("The index was created by another reader.");
+		}
+		int recordIndex = index.find(key);
+		if (recordIndex == -1) {
+			return false;
+		}
+		currentIndex = recordIndex;
+		return true;
+	}
+
+	/**
+	 * Moves the cursor to the record at the given position, like a position
+	 * returned by {@link CsvIndex#findAll(Object...)}. Navigation with
+	 * {@link #next()} goes on from there.
+	 */
+	public void moveTo(int recordIndex) {
+		checkRandomAccess();
+		if (recordIndex < 0 || recordIndex >= recordCount()) {
+			throw new IllegalArgumentException(String.format("Invalid record index: %d. Max is %s.", recordIndex, recordCount() - 1));
+		}
+		currentIndex = recordIndex;
+	}
+
+	/**
+	 * Whether all the records are kept in memory, allowing them to be read in
+	 * any order.
+	 */
+	protected boolean keepsRecords() {
+		return true;
+	}
+
+	/**
+	 * Shares the loaded records with several threads, through a dataset whose
+	 * cursors navigate them independently, instead of each thread loading its
+	 * own copy. From then on the records can't be changed: clearing or
+	 * reading this reader fails. Its own cursor can still be used, by one
+	 * thread.
+	 *
+	 * @see CsvDataset
+	 */
+	public CsvDataset toDataset() {
+		checkRandomAccess();
+		if (dataset == null) {
+			dataset = new CsvDataset(this);
+		}
+		return dataset;
+	}
+
+	boolean isShared() {
+		return dataset != null;
+	}
+
+	private void checkNotShared() {
+		if (dataset != null) {
+			throw new IllegalStateException("The records are shared by a dataset, they can't be changed.");
+		}
+	}
+
+	void checkRandomAccess() {
+		if (!keepsRecords()) {
+			throw new UnsupportedOperationException("The records are not kept in memory, they can only be read in sequence.");
+		}
+	}
+
+	void checkFieldIndex(int fieldIndex) {
+		if (fieldIndex < 0 || fieldIndex >= fieldCount) {
+			throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fieldIndex, fieldCount - 1));
+		}
+	}
+
 	public boolean isNull(String fieldName) {
-		return getString(fieldName) == null;
+		return isNull(getFieldIndex(fieldName));
 	}
 
+	/**
+	 * Whether the value is empty, without converting it.
+	 */
 	public boolean isNull(int fieldIndex) {
-		return getString(fieldIndex) == null;
+		checkFieldIndex(fieldIndex);
+		if (columns != null && columns[fieldIndex] != null) {
+			return columns[fieldIndex].isNull(currentIndex);
+		}
+		return getValue(fieldIndex) == null;
 	}
 
 	public boolean next() {
-		if (currentIndex < records.size() - 1) {
+		if (currentIndex < recordCount() - 1) {
 			++currentIndex;
 			return true;
 		}
@@ -199,6 +1281,9 @@ public class CsvReader {
 	}
 
 	public int recordCount() {
+		if (storedByColumn) {
+			return columns[0].size();
+		}
 		return records.size();
 	}
 
@@ -226,8 +1311,227 @@ public class CsvReader {
 		this.delimiterEscape = delimiterEscape;
 	}
 
+	/**
+	 * Sets the pattern of the {@link CsvFieldType#UTIL_DATE} fields, as in
+	 * {@link java.text.SimpleDateFormat}. The dates are parsed the same way,
+	 * but numeric patterns are parsed much faster, and the reader may be
+	 * shared by threads.
+	 */
 	public void setDateFormat(String format) {
-		dateFormat = new SimpleDateFormat(format);
+		checkNotShared();
+		dateParser = new CsvDateParser(format);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Defines the charset of the file. Must be set before
+	 * {@link #readFile(File)}. Default is the platform charset.
+	 */
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	public boolean isReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Defines whether the file is read by a background thread, ahead of the
+	 * parsing, into two large buffers: one is filled while the other is
+	 * parsed. Reading from slow disks then overlaps with parsing, instead of
+	 * blocking it. Doesn't apply to parallel reads (see
+	 * {@link #setParallelism(int)}).
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Defines how many threads {@link #readFile(File)} uses to parse the file.
+	 * The default is 1 (sequential read). Use
+	 * <code>Runtime.getRuntime().availableProcessors()</code> to use all the
+	 * cores. The result is the same as a sequential read, records are kept in
+	 * the original order.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism + ".");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public boolean isColumnar() {
+		return columnar;
+	}
+
+	/**
+	 * Defines whether {@link #readFile(File)} keeps the values by column instead
+	 * of one {@code String[]} per record. Columnar storage takes much less
+	 * memory: fields declared as {@link CsvFieldType#INTEGER},
+	 * {@link CsvFieldType#LONG} or {@link CsvFieldType#UTIL_DATE} (see
+	 * {@link #setFieldType(String, CsvFieldType)}) are stored as primitive
+	 * arrays, and string fields with few distinct values store each value only
+	 * once.
+	 *
+	 * <p>
+	 * The values of typed fields are converted when the file is read, so
+	 * reading them as {@code String} gives their formatted value (Ex: "007" is
+	 * read as "7").
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
+	}
+
+	/**
+	 * Declares the type of a field, by name. Must be called before
+	 * {@link #readFile(File)}.
+	 *
+	 * <p>
+	 * The values of typed fields are converted only once, when the file is
+	 * read. Getters of the declared type and sorts by these fields then use the
+	 * converted values, without parsing them again.
+	 */
+	public void setFieldType(String fieldName, CsvFieldType fieldType) {
+		declaredTypesByName.put(fieldName.toUpperCase(), fieldType);
+	}
+
+	/**
+	 * Declares the type of a field, by index. Must be called before
+	 * {@link #readFile(File)}.
+	 *
+	 * @see #setFieldType(String, CsvFieldType)
+	 */
+	public void setFieldType(int fieldIndex, CsvFieldType fieldType) {
+		declaredTypesByIndex.put(fieldIndex, fieldType);
+	}
+
+	/**
+	 * Defines the only fields read from the file, by name. Must be called
+	 * before {@link #readFile(File)}. The other fields are skipped while
+	 * parsing each line, so their values are never copied nor stored.
+	 *
+	 * <p>
+	 * The projected fields are read as if the file had just them, in the given
+	 * order: {@link #getString(int)} with index 0 reads the first projected
+	 * field, and so on. Field indexes given to
+	 * {@link #setFieldType(int, CsvFieldType)} refer to the projected fields
+	 * too.
+	 */
+	public void setProjection(String... fieldNames) {
+		checkProjection(fieldNames.length);
+		projectedNames = new String[fieldNames.length];
+		for (int i = 0; i < fieldNames.length; ++i) {
+			projectedNames[i] = fieldNames[i].toUpperCase();
+		}
+		projectedIndexes = null;
+	}
+
+	/**
+	 * Defines the only fields read from the file, by their index in the file.
+	 * Must be called before {@link #readFile(File)}.
+	 *
+	 * @see #setProjection(String...)
+	 */
+	public void setProjection(int... fieldIndexes) {
+		checkProjection(fieldIndexes.length);
+		projectedIndexes = fieldIndexes.clone();
+		projectedNames = null;
+	}
+
+	private static void checkProjection(int fieldCount) {
+		if (fieldCount == 0) {
+			throw new IllegalArgumentException("At least one field must be projected.");
+		}
+	}
+
+	/**
+	 * Reads all the fields again, from the next call to
+	 * {@link #readFile(File)} on.
+	 */
+	public void clearProjection() {
+		projectedNames = null;
+		projectedIndexes = null;
+	}
+
+	/**
+	 * Reads only the records whose field value is accepted by the filter. Must
+	 * be called before {@link #readFile(File)}. The filtered field doesn't
+	 * need to be projected (see {@link #setProjection(String...)}).
+	 *
+	 * <p>
+	 * Records are filtered while the lines are parsed: a rejected line is
+	 * discarded as soon as the filtered field is read, before the following
+	 * fields are parsed, and is never stored. For the same reason, a rejected
+	 * line is not checked to have as many fields as the header: a line with a
+	 * wrong number of fields only throws a {@link CsvFormatError} if it passes
+	 * the filters. When several filters are added, a record must pass all of
+	 * them. When reading in parallel (see
+	 * {@link #setParallelism(int)}), the filter is called by several threads.
+	 */
+	public void addFilter(String fieldName, CsvFilter filter) {
+		String key = fieldName.toUpperCase();
+		filtersByName.put(key, AndFilter.of(filtersByName.get(key), filter));
+	}
+
+	/**
+	 * Reads only the records whose field value is accepted by the filter. The
+	 * field is given by its index in the file, even when some fields are
+	 * projected.
+	 *
+	 * @see #addFilter(String, CsvFilter)
+	 */
+	public void addFilter(int fieldIndex, CsvFilter filter) {
+		filtersByIndex.put(fieldIndex, AndFilter.of(filtersByIndex.get(fieldIndex), filter));
+	}
+
+	/**
+	 * Removes all the filters, from the next call to {@link #readFile(File)}
+	 * on.
+	 */
+	public void clearFilters() {
+		filtersByName.clear();
+		filtersByIndex.clear();
+	}
+
+	public boolean isSnapshotEnabled() {
+		return snapshotEnabled;
+	}
+
+	/**
+	 * Defines whether {@link #readFile(File)} keeps a binary snapshot of the
+	 * loaded records next to the CSV file (same name, plus ".snapshot"). The
+	 * next reads of the same file, with the same options, load the snapshot
+	 * instead of parsing the file again, which is many times faster.
+	 *
+	 * <p>
+	 * The snapshot is written again when the CSV file changes (size, last
+	 * modification time or the hash of its first and last bytes). It's not
+	 * used when there are filters (see {@link #addFilter(String, CsvFilter)}).
+	 */
+	public void setSnapshotEnabled(boolean snapshotEnabled) {
+		this.snapshotEnabled = snapshotEnabled;
+	}
+
+	/**
+	 * Describes the options that affect the loaded records, so that a
+	 * snapshot is only used by a reader with the same options.
+	 */
+	String describeOptions() {
+		StringBuilder result = new StringBuilder();
+		result.append(separator).append(delimiter).append(delimiterEscape);
+		result.append(';').append(firstLineIsHeader).append(';').append(columnar);
+		result.append(';').append(charset.name());
+		result.append(';').append(dateParser.getPattern()).append(';').append(dateParser.getTimeZone().getID());
+		result.append(';').append(new TreeMap<>(declaredTypesByName)).append(new TreeMap<>(declaredTypesByIndex));
+		result.append(';').append(Arrays.toString(projectedNames)).append(Arrays.toString(projectedIndexes));
+		return result.toString();
 	}
 
 	public boolean isFirstLineHeader() {
@@ -238,6 +1542,16 @@ public class CsvReader {
 		this.firstLineIsHeader = firstLineIsHeader;
 	}
 
+	protected String formatValue(Object value, CsvFieldType type) {
+		if (value == null) {
+			return null;
+		}
+		if (type == CsvFieldType.UTIL_DATE) {
+			return dateParser.format((Date) value);
+		}
+		return value.toString();
+	}
+
 	@SuppressWarnings("rawtypes")
 	protected Comparable convertValue(String value, CsvFieldType type) {
 		if (value == null) {
@@ -252,7 +1566,7 @@ public class CsvReader {
 			return Long.valueOf(value);
 		case UTIL_DATE:
 			try {
-				return dateFormat.parse(value);
+				return dateParser.parse(value);
 			} catch (ParseException e) {
 				throw new CsvFormatError(e);
 			}
@@ -261,4 +1575,31 @@ public class CsvReader {
 		}
 	}
 
+	/**
+	 * Accepts the values accepted by two filters.
+	 */
+	private static class AndFilter implements CsvFilter {
+
+		private final CsvFilter first;
+		private final CsvFilter second;
+
+		private AndFilter(CsvFilter first, CsvFilter second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		static CsvFilter of(CsvFilter first, CsvFilter second) {
+			if (first == null) {
+				return second;
+			}
+			return new AndFilter(first, second);
+		}
+
+		@Override
+		public boolean accept(String value) {
+			return first.accept(value) && second.accept(value);
+		}
+
+	}
+
 }
@@ -0,0 +1,152 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Date;
+
+/**
+ * A view of one record of a {@link CsvReader}, given by
+ * {@link CsvReader#stream()}. Unlike the getters of the reader, it doesn't
+ * depend on the position of the cursor, so records can be read by several
+ * threads at once.
+ *
+ * <p>
+ * A record kept in memory by the reader is read from it, without copying its
+ * values: it must not be used after the records are reloaded.
+ * Records of readers that don't keep them in memory are detached, with a copy
+ * of their values.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public final class CsvRecord {
+
+	private final CsvReader reader;
+	private final int index;
+	/**
+	 * The values of a detached record, or <code>null</code> when they are read
+	 * from the reader.
+	 */
+	private final String[] values;
+
+	CsvRecord(CsvReader reader, int index) {
+		this(reader, index, null);
+	}
+
+	CsvRecord(CsvReader reader, int index, String[] values) {
+		this.reader = reader;
+		this.index = index;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the position of the record in the reader, like
+	 * {@link CsvReader#moveTo(int)} expects for records kept in memory, or -1
+	 * for the records read by a parallel stream over the byte ranges of a
+	 * {@link CsvMappedFileReader}.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public String getString(String fieldName) {
+		return getString(reader.getFieldIndex(fieldName));
+	}
+
+	public String getString(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.STRING);
+	}
+
+	public Integer getInteger(String fieldName) {
+		return getInteger(reader.getFieldIndex(fieldName));
+	}
+
+	public Integer getInteger(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.INTEGER);
+	}
+
+	public Long getLong(String fieldName) {
+		return getLong(reader.getFieldIndex(fieldName));
+	}
+
+	public Long getLong(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.LONG);
+	}
+
+	public Date getDate(String fieldName) {
+		return getDate(reader.getFieldIndex(fieldName));
+	}
+
+	public Date getDate(int fieldIndex) {
+		return getAsType(fieldIndex, CsvFieldType.UTIL_DATE);
+	}
+
+	/**
+	 * @see CsvReader#getIntValue(String)
+	 */
+	public int getIntValue(String fieldName) {
+		return getIntValue(reader.getFieldIndex(fieldName));
+	}
+
+	public int getIntValue(int fieldIndex) {
+		return (int) getPrimitiveValue(fieldIndex, CsvFieldType.INTEGER);
+	}
+
+	/**
+	 * @see CsvReader#getLongValue(String)
+	 */
+	public long getLongValue(String fieldName) {
+		return getLongValue(reader.getFieldIndex(fieldName));
+	}
+
+	public long getLongValue(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.LONG);
+	}
+
+	/**
+	 * @see CsvReader#getDateMillis(String)
+	 */
+	public long getDateMillis(String fieldName) {
+		return getDateMillis(reader.getFieldIndex(fieldName));
+	}
+
+	public long getDateMillis(int fieldIndex) {
+		return getPrimitiveValue(fieldIndex, CsvFieldType.UTIL_DATE);
+	}
+
+	public boolean isNull(String fieldName) {
+		return isNull(reader.getFieldIndex(fieldName));
+	}
+
+	/**
+	 * Whether the value is empty, without converting it.
+	 */
+	public boolean isNull(int fieldIndex) {
+		reader.checkFieldIndex(fieldIndex);
+		if (values != null) {
+			return values[fieldIndex] == null;
+		}
+		return reader.isNullValue(index, fieldIndex);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getAsType(int fieldIndex, CsvFieldType fieldType) {
+		reader.checkFieldIndex(fieldIndex);
+		if (values != null) {
+			return (T) reader.convertValue(values[fieldIndex], fieldType);
+		}
+		return reader.getAsType(index, fieldIndex, fieldType);
+	}
+
+	/**
+	 * Returns the value of an integer, long or date field as a long, 0 if it's
+	 * empty.
+	 */
+	long getPrimitiveValue(int fieldIndex, CsvFieldType fieldType) {
+		reader.checkFieldIndex(fieldIndex);
+		if (values != null) {
+			String value = values[fieldIndex];
+			return value == null ? 0 : reader.parsePrimitiveValue(value, fieldType);
+		}
+		return reader.getPrimitiveValue(index, fieldIndex, fieldType);
+	}
+
+}
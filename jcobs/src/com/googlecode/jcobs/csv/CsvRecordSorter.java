@@ -0,0 +1,241 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the sorted order of the records of a {@link CsvReader}.
+ *
+ * <p>
+ * The values of each sort field are extracted only once, before sorting:
+ * integers, longs and dates become a <code>long[]</code> (taken from the typed
+ * column when the field was declared with the same type), and strings are
+ * compared as they are. The record indexes are then sorted by a stable merge
+ * sort, forked over all the cores for big datasets.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvRecordSorter {
+
+	/**
+	 * Ranges smaller than this are sorted by the current thread.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private final SortKey[] keys;
+
+	CsvRecordSorter(CsvReader reader, CsvSortField... fields) {
+		keys = new SortKey[fields.length];
+		for (int i = 0; i < fields.length; ++i) {
+			keys[i] = extractKey(reader, fields[i]);
+		}
+	}
+
+	/**
+	 * Returns the record indexes in sorted order.
+	 */
+	int[] sort(int recordCount) {
+		int[] order = new int[recordCount];
+		for (int i = 0; i < recordCount; ++i) {
+			order[i] = i;
+		}
+		int[] buffer = new int[recordCount];
+		if (recordCount < PARALLEL_THRESHOLD * 2) {
+			mergeSort(order, buffer, 0, recordCount);
+		} else {
+			ForkJoinPool pool = new ForkJoinPool();
+			try {
+				pool.invoke(new SortTask(order, buffer, 0, recordCount));
+			} finally {
+				pool.shutdown();
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Compares two records by all the sort keys.
+	 */
+	int compare(int r1, int r2) {
+		for (SortKey key : keys) {
+			int res = key.compare(r1, r2);
+			if (res != 0) {
+				return key.asc ? res : -res;
+			}
+		}
+		return 0;
+	}
+
+	private static SortKey extractKey(CsvReader reader, CsvSortField field) {
+		int fieldIndex = field.getFieldName() != null ? reader.getFieldIndex(field.getFieldName()) : field.getFieldIndex();
+		if (fieldIndex >= reader.fieldCount) {
+			throw new IllegalArgumentException(String.format("Invalid field index: %d. Max is %s.", fieldIndex, reader.fieldCount - 1));
+		}
+		int recordCount = reader.recordCount();
+		CsvFieldType fieldType = field.getFieldType();
+		if (fieldType == CsvFieldType.STRING) {
+			String[] values = new String[recordCount];
+			for (int i = 0; i < recordCount; ++i) {
+				values[i] = reader.getValue(i, fieldIndex);
+			}
+			return new StringKey(field.isAsc(), values);
+		}
+		LongKey key = new LongKey(field.isAsc(), recordCount);
+		CsvColumn column = reader.columns != null ? reader.columns[fieldIndex] : null;
+		if (column instanceof CsvLongColumn && column.getType() == fieldType) {
+			CsvLongColumn longColumn = (CsvLongColumn) column;
+			for (int i = 0; i < recordCount; ++i) {
+				key.set(i, longColumn.isNull(i), longColumn.getLong(i));
+			}
+		} else if (column instanceof CsvIntegerColumn && fieldType == CsvFieldType.INTEGER) {
+			CsvIntegerColumn intColumn = (CsvIntegerColumn) column;
+			for (int i = 0; i < recordCount; ++i) {
+				key.set(i, intColumn.isNull(i), intColumn.getInt(i));
+			}
+		} else {
+			for (int i = 0; i < recordCount; ++i) {
+				String value = reader.getValue(i, fieldIndex);
+				key.set(i, value == null, value == null ? 0L : CsvReader.toLong(reader.convertValue(value, fieldType)));
+			}
+		}
+		return key;
+	}
+
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(order, from, to);
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle);
+		mergeSort(order, buffer, middle, to);
+		merge(order, buffer, from, middle, to);
+	}
+
+	private void insertionSort(int[] order, int from, int to) {
+		for (int i = from + 1; i < to; ++i) {
+			int record = order[i];
+			int j = i - 1;
+			while (j >= from && compare(order[j], record) > 0) {
+				order[j + 1] = order[j];
+				--j;
+			}
+			order[j + 1] = record;
+		}
+	}
+
+	private void merge(int[] order, int[] buffer, int from, int middle, int to) {
+		if (compare(order[middle - 1], order[middle]) <= 0) {
+			// Already in order
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; ++i) {
+			if (right >= to || (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+
+	private class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] order;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+
+		SortTask(int[] order, int[] buffer, int from, int to) {
+			this.order = order;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				mergeSort(order, buffer, from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SortTask(order, buffer, from, middle), new SortTask(order, buffer, middle, to));
+			merge(order, buffer, from, middle, to);
+		}
+
+	}
+
+	private abstract static class SortKey {
+
+		final boolean asc;
+
+		SortKey(boolean asc) {
+			this.asc = asc;
+		}
+
+		/**
+		 * Compares the key of two records, ascending. Nulls come first.
+		 */
+		abstract int compare(int r1, int r2);
+
+	}
+
+	private static class StringKey extends SortKey {
+
+		private final String[] values;
+
+		StringKey(boolean asc, String[] values) {
+			super(asc);
+			this.values = values;
+		}
+
+		@Override
+		int compare(int r1, int r2) {
+			return CsvSortableReader.compareNullsFirst(values[r1], values[r2]);
+		}
+
+	}
+
+	private static class LongKey extends SortKey {
+
+		private final long[] values;
+		private final long[] nulls;
+
+		LongKey(boolean asc, int recordCount) {
+			super(asc);
+			values = new long[recordCount];
+			nulls = new long[(recordCount >>> 6) + 1];
+		}
+
+		void set(int record, boolean isNull, long value) {
+			if (isNull) {
+				nulls[record >>> 6] |= 1L << record;
+			} else {
+				values[record] = value;
+			}
+		}
+
+		private boolean isNull(int record) {
+			return (nulls[record >>> 6] & (1L << record)) != 0L;
+		}
+
+		@Override
+		int compare(int r1, int r2) {
+			boolean null1 = isNull(r1);
+			boolean null2 = isNull(r2);
+			if (null1 || null2) {
+				return (null1 ? 0 : 1) - (null2 ? 0 : 1);
+			}
+			return Long.compare(values[r1], values[r2]);
+		}
+
+	}
+
+}
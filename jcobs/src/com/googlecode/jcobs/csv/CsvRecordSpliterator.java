@@ -0,0 +1,91 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a range of the records kept in memory by a {@link CsvReader} in
+ * halves, so that parallel streams process even parts of it. The records are
+ * not copied: each one is a view of the reader, by position.
+ *
+ * <p>
+ * The reader may reload its records, so the spliterator is only
+ * {@link Spliterator#IMMUTABLE} once they are shared by a {@link CsvDataset}.
+ * Otherwise, like the collections, it fails with a
+ * {@link ConcurrentModificationException} when that happens during the
+ * traversal.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvRecordSpliterator implements Spliterator<CsvRecord> {
+
+	/**
+	 * Ranges smaller than this are not split.
+	 */
+	private static final int MIN_SPLIT_SIZE = 1024;
+
+	private final CsvReader reader;
+	private final int modCount;
+	private int origin;
+	private final int fence;
+
+	CsvRecordSpliterator(CsvReader reader, int origin, int fence) {
+		this(reader, reader.modCount, origin, fence);
+	}
+
+	private CsvRecordSpliterator(CsvReader reader, int modCount, int origin, int fence) {
+		this.reader = reader;
+		this.modCount = modCount;
+		this.origin = origin;
+		this.fence = fence;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super CsvRecord> action) {
+		if (origin >= fence) {
+			return false;
+		}
+		checkModCount();
+		action.accept(new CsvRecord(reader, origin++));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super CsvRecord> action) {
+		for (int i = origin; i < fence; ++i) {
+			action.accept(new CsvRecord(reader, i));
+		}
+		origin = fence;
+		checkModCount();
+	}
+
+	@Override
+	public Spliterator<CsvRecord> trySplit() {
+		int middle = (origin + fence) >>> 1;
+		if (middle - origin < MIN_SPLIT_SIZE) {
+			return null;
+		}
+		Spliterator<CsvRecord> prefix = new CsvRecordSpliterator(reader, modCount, origin, middle);
+		origin = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return fence - origin;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL | (reader.isShared() ? IMMUTABLE : 0);
+	}
+
+	private void checkModCount() {
+		if (reader.modCount != modCount) {
+			throw new ConcurrentModificationException("The records were reloaded.");
+		}
+	}
+
+}
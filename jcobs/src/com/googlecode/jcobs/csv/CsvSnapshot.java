@@ -0,0 +1,327 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A binary copy of the records loaded by a {@link CsvReader}, kept next to the
+ * CSV file (see {@link CsvReader#setSnapshotEnabled(boolean)}). Loading the
+ * snapshot skips all the parsing: it's mapped into memory, in windows of up to
+ * 2 GB, the typed columns are copied in bulk and the strings are decoded
+ * straight from the mapped bytes.
+ *
+ * <p>
+ * The snapshot is only used while the CSV file has the same size, last
+ * modification time and hash (of its first and last
+ * {@value #HASH_SAMPLE_SIZE} bytes), and the reader has the same options
+ * (separators, field types, projection, etc). Otherwise it's written again.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvSnapshot {
+
+	static final String EXTENSION = ".snapshot";
+	static final int HASH_SAMPLE_SIZE = 64 * 1024;
+
+	/**
+	 * "JCOBSNAP" in ASCII.
+	 */
+	private static final long MAGIC = 0x4A434F42534E4150L;
+	private static final int VERSION = 1;
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private final CsvReader reader;
+	private final File source;
+	private final File file;
+	private int windowSize = Integer.MAX_VALUE;
+
+	CsvSnapshot(CsvReader reader, File source) {
+		this.reader = reader;
+		this.source = source;
+		this.file = new File(source.getPath() + EXTENSION);
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * The size of the windows mapped while loading. At least 8 bytes, so a
+	 * single value never spans two windows.
+	 */
+	void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Loads the records from the snapshot, if it's up to date.
+	 *
+	 * @return <code>false</code> if there's no valid snapshot. The reader is
+	 *         left cleared in this case.
+	 */
+	boolean load() throws IOException {
+		if (!file.isFile()) {
+			return false;
+		}
+		try (FileInputStream stream = new FileInputStream(file)) {
+			Input in = new Input(stream.getChannel(), windowSize);
+			if (!readHeader(in)) {
+				return false;
+			}
+			readRecords(in);
+			reader.endRead();
+			return true;
+		} catch (RuntimeException e) {
+			// Truncated or corrupted, it will be written again
+			reader.clear();
+			return false;
+		}
+	}
+
+	private boolean readHeader(Input in) throws IOException {
+		if (in.getLong() != MAGIC || in.getInt() != VERSION) {
+			return false;
+		}
+		if (in.getLong() != source.length() || in.getLong() != source.lastModified() || in.getLong() != hashSource()) {
+			return false;
+		}
+		if (!reader.describeOptions().equals(in.getString())) {
+			return false;
+		}
+		int nameCount = in.getInt();
+		for (int i = 0; i < nameCount; ++i) {
+			reader.fields.put(in.getString(), i);
+		}
+		reader.fileFieldCount = in.getInt();
+		reader.fieldCount = in.getInt();
+		return true;
+	}
+
+	private void readRecords(Input in) throws IOException {
+		int recordCount = in.getInt();
+		reader.prepareStorage();
+		CsvColumn[] columns = reader.columns;
+		for (int i = 0; i < reader.fieldCount; ++i) {
+			CsvColumn column = columns != null ? columns[i] : null;
+			int type = in.get();
+			if (type != (column == null ? -1 : column.getType().ordinal())) {
+				throw new IllegalStateException("Snapshot doesn't match the reader storage.");
+			}
+			if (column != null) {
+				column.read(in, recordCount);
+			}
+		}
+		if (!reader.storedByColumn) {
+			List<String[]> records = reader.records;
+			for (int r = 0; r < recordCount; ++r) {
+				String[] record = new String[reader.fieldCount];
+				for (int i = 0; i < record.length; ++i) {
+					record[i] = in.getString();
+				}
+				records.add(record);
+			}
+		}
+	}
+
+	/**
+	 * Writes the records of the reader to the snapshot. Failures are ignored,
+	 * the snapshot is just a cache of the CSV file.
+	 */
+	void save() {
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+				writeHeader(out);
+				writeRecords(out);
+			}
+			if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// Read-only directory, full disk, etc. The CSV file is read anyway.
+			temp.delete();
+		}
+	}
+
+	private void writeHeader(DataOutputStream out) throws IOException {
+		out.writeLong(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(source.length());
+		out.writeLong(source.lastModified());
+		out.writeLong(hashSource());
+		writeString(out, reader.describeOptions());
+		out.writeInt(reader.fields.size());
+		for (Map.Entry<String, Integer> field : reader.fields.entrySet()) {
+			writeString(out, field.getKey());
+		}
+		out.writeInt(reader.fileFieldCount);
+		out.writeInt(reader.fieldCount);
+	}
+
+	private void writeRecords(DataOutputStream out) throws IOException {
+		int recordCount = reader.recordCount();
+		out.writeInt(recordCount);
+		CsvColumn[] columns = reader.columns;
+		for (int i = 0; i < reader.fieldCount; ++i) {
+			CsvColumn column = columns != null ? columns[i] : null;
+			out.writeByte(column == null ? -1 : column.getType().ordinal());
+			if (column != null) {
+				column.write(out);
+			}
+		}
+		if (!reader.storedByColumn) {
+			for (String[] record : reader.records) {
+				for (String value : record) {
+					writeString(out, value);
+				}
+			}
+		}
+	}
+
+	private long hashSource() throws IOException {
+		CRC32 crc = new CRC32();
+		try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+			long length = raf.length();
+			byte[] sample = new byte[(int) Math.min(length, HASH_SAMPLE_SIZE)];
+			raf.readFully(sample);
+			crc.update(sample);
+			if (length > HASH_SAMPLE_SIZE) {
+				sample = new byte[(int) Math.min(length - HASH_SAMPLE_SIZE, HASH_SAMPLE_SIZE)];
+				raf.seek(length - sample.length);
+				raf.readFully(sample);
+				crc.update(sample);
+			}
+		}
+		return crc.getValue();
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads the snapshot through windows mapped one after the other, since a
+	 * single mapping can't be bigger than 2 GB. Each value is read from a
+	 * single window, the arrays and strings are copied window by window.
+	 */
+	static class Input {
+
+		private final FileChannel channel;
+		private final long size;
+		private final int windowSize;
+		private long windowStart;
+		private ByteBuffer window;
+
+		Input(FileChannel channel, int windowSize) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.windowSize = windowSize;
+			this.window = ByteBuffer.allocate(0);
+		}
+
+		/**
+		 * Maps the next window if the current one has less than the given
+		 * number of bytes left.
+		 */
+		private ByteBuffer require(int bytes) throws IOException {
+			if (window.remaining() < bytes) {
+				long position = windowStart + window.position();
+				if (position + bytes > size) {
+					throw new BufferUnderflowException();
+				}
+				window = channel.map(MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+				windowStart = position;
+			}
+			return window;
+		}
+
+		byte get() throws IOException {
+			return require(1).get();
+		}
+
+		int getInt() throws IOException {
+			return require(4).getInt();
+		}
+
+		long getLong() throws IOException {
+			return require(8).getLong();
+		}
+
+		void get(byte[] values) throws IOException {
+			for (int offset = 0; offset < values.length;) {
+				int length = Math.min(values.length - offset, require(1).remaining());
+				window.get(values, offset, length);
+				offset += length;
+			}
+		}
+
+		void get(char[] values) throws IOException {
+			for (int offset = 0; offset < values.length;) {
+				int length = Math.min(values.length - offset, require(2).remaining() / 2);
+				window.asCharBuffer().get(values, offset, length);
+				window.position(window.position() + length * 2);
+				offset += length;
+			}
+		}
+
+		void get(int[] values) throws IOException {
+			for (int offset = 0; offset < values.length;) {
+				int length = Math.min(values.length - offset, require(4).remaining() / 4);
+				window.asIntBuffer().get(values, offset, length);
+				window.position(window.position() + length * 4);
+				offset += length;
+			}
+		}
+
+		void get(long[] values) throws IOException {
+			for (int offset = 0; offset < values.length;) {
+				int length = Math.min(values.length - offset, require(8).remaining() / 8);
+				window.asLongBuffer().get(values, offset, length);
+				window.position(window.position() + length * 8);
+				offset += length;
+			}
+		}
+
+		String getString() throws IOException {
+			int length = getInt();
+			if (length == -1) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			get(bytes);
+			return new String(bytes, CHARSET);
+		}
+
+		List<String> getStrings(int count) throws IOException {
+			List<String> result = new ArrayList<>(count);
+			for (int i = 0; i < count; ++i) {
+				result.add(getString());
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.googlecode.jcobs.csv;
+
+/**
+ * A field used to sort the records of a {@link CsvSortableReader}, with the
+ * type used to compare its values and the sort direction.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+public class CsvSortField {
+
+	private final String fieldName;
+	private final int fieldIndex;
+	private final CsvFieldType fieldType;
+	private final boolean asc;
+
+	public CsvSortField(String fieldName, CsvFieldType fieldType, boolean asc) {
+		this.fieldName = fieldName;
+		this.fieldIndex = -1;
+		this.fieldType = fieldType;
+		this.asc = asc;
+	}
+
+	public CsvSortField(int fieldIndex, CsvFieldType fieldType, boolean asc) {
+		this.fieldName = null;
+		this.fieldIndex = fieldIndex;
+		this.fieldType = fieldType;
+		this.asc = asc;
+	}
+
+	/**
+	 * @return the field name, or <code>null</code> if the field was given by
+	 *         index.
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * @return the field index, or -1 if the field was given by name.
+	 */
+	public int getFieldIndex() {
+		return fieldIndex;
+	}
+
+	public CsvFieldType getFieldType() {
+		return fieldType;
+	}
+
+	public boolean isAsc() {
+		return asc;
+	}
+
+	@Override
+	public String toString() {
+		return (fieldName != null ? fieldName : "#" + fieldIndex) + " " + fieldType + (asc ? " asc" : " desc");
+	}
+
+}
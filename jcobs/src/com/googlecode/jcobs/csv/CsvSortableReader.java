@@ -1,56 +1,356 @@
 package com.googlecode.jcobs.csv;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Date;
 
+/**
+ * A {@link CsvReader} whose records can be sorted by one or more fields.
+ *
+ * <p>
+ * The values of the sort fields are extracted once, before sorting, so no
+ * conversion happens while comparing the records. Big datasets are sorted
+ * using all the available cores. The sort is stable and nulls come first (or
+ * last, on descending order).
+ *
+ * <p>
+ * Sorting doesn't move the records: it computes their order, an
+ * <code>int[]</code> of positions that is navigated by {@link #next()}. The
+ * orders are cached by sort fields until the records are reloaded, so going
+ * back to an order already computed doesn't sort again, and the positions
+ * given by {@link CsvIndex} remain valid. The same orders are used by the
+ * cursors of a {@link CsvDataset}, see {@link CsvCursor#sort(CsvSortField...)}.
+ *
+ * <p>
+ * Once sorted, the records can be searched by the sort fields in logarithmic
+ * time with {@link #seek(Object...)} and {@link #range(Object, Object)}:
+ *
+ * <pre>
+ * reader.sort(&quot;data&quot;, CsvFieldType.UTIL_DATE, true);
+ * reader.range(start, end);
+ * while (reader.next()) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * <p>
+ * Records added by {@link #poll()} are not in the orders computed before: the
+ * sort (or selection) is dropped, and {@link #next()} goes on in the order of
+ * the file from the current record, until the records are sorted again.
+ *
+ * <p>
+ * To read just the first records of an order, {@link #top(int, String,
+ * CsvFieldType, boolean)} selects them without sorting the others.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
 public class CsvSortableReader extends CsvReader {
 
+	private CsvSortField[] sortFields;
+	private int[] sortFieldIndexes;
+	private int sortModCount;
+	/**
+	 * The order of the last sort, searched by {@link #seek(Object...)} and
+	 * {@link #range(Object, Object)}.
+	 */
+	private CsvOrder sortOrder;
+	/**
+	 * The order being navigated: the last sort, the selection of
+	 * {@link #top(int, int, CsvFieldType, boolean)} or <code>null</code> for
+	 * the file order.
+	 */
+	private CsvOrder order;
+	/**
+	 * The rank of the current record in {@link #order}.
+	 */
+	private int rank;
+	/**
+	 * The end (exclusive) of the ranks being navigated.
+	 */
+	private int rankEnd;
+	/**
+	 * The {@link #modCount} when {@link #order} was computed.
+	 */
+	private int orderModCount;
+
+	@Override
+	public void clear() {
+		super.clear();
+		sortFields = null;
+		sortOrder = null;
+		order = null;
+	}
+
 	public void sort(String fieldName, CsvFieldType fieldType, boolean asc) {
-		int fieldIndex = getFieldIndex(fieldName);
-		sort(fieldIndex, fieldType, asc);
+		sort(new CsvSortField(fieldName, fieldType, asc));
 	}
 
 	public void sort(int fieldIndex, CsvFieldType fieldType, boolean asc) {
-		Collections.sort(records, new RecordComparator(fieldIndex, fieldType, asc));
-	}
-
-	private class RecordComparator implements Comparator<String[]> {
-
-		private int fieldIndex;
-		private CsvFieldType fieldType;
-		private boolean asc;
-
-		public RecordComparator(int fieldIndex, CsvFieldType fieldType, boolean asc) {
-			this.fieldIndex = fieldIndex;
-			this.fieldType = fieldType;
-			this.asc = asc;
-		}
-
-		@SuppressWarnings({ "rawtypes", "unchecked" })
-		@Override
-		public int compare(String[] o1, String[] o2) {
-			// Nulls come first
-			String v1 = o1[fieldIndex];
-			String v2 = o2[fieldIndex];
-			int res;
-			if (v1 == null) {
-				if (v2 == null) {
-					res = 0;
-				} else {
-					res = -1;
-				}
+		sort(new CsvSortField(fieldIndex, fieldType, asc));
+	}
+
+	/**
+	 * Sorts the records by several fields. Records with the same value in the
+	 * first field are sorted by the second one, and so on. The cursor is placed
+	 * before the first record.
+	 */
+	public void sort(CsvSortField... sortFields) {
+		sortOrder = getOrder(sortFields);
+		this.sortFields = sortFields.clone();
+		sortFieldIndexes = new int[sortFields.length];
+		for (int i = 0; i < sortFields.length; ++i) {
+			CsvSortField field = sortFields[i];
+			sortFieldIndexes[i] = field.getFieldName() != null ? getFieldIndex(field.getFieldName()) : field.getFieldIndex();
+		}
+		sortModCount = modCount;
+		navigate(sortOrder, 0, sortOrder.size());
+	}
+
+	/**
+	 * Goes back to the order of the file, with the cursor before the first
+	 * record. The orders already computed are kept.
+	 */
+	public void clearSort() {
+		sortFields = null;
+		sortOrder = null;
+		order = null;
+		currentIndex = -1;
+	}
+
+	/**
+	 * Selects the first <code>n</code> records in the order of a field, as
+	 * {@link #sort(String, CsvFieldType, boolean)} would, but without sorting
+	 * the others: the records are scanned once, keeping the best ones in a
+	 * heap of <code>n</code> records. The cursor is placed before the first
+	 * selected record, so that {@link #next()} reads the selected records in
+	 * order and then returns <code>false</code>. The selection lasts until the
+	 * next call to {@link #seek(Object...)}, {@link #range(Object, Object)},
+	 * {@link #clearRange()} or a new sort.
+	 *
+	 * @return the number of selected records: <code>n</code>, or all of them
+	 *         if there are fewer.
+	 */
+	public int top(int n, String fieldName, CsvFieldType fieldType, boolean asc) {
+		return top(n, getFieldIndex(fieldName), fieldType, asc);
+	}
+
+	public int top(int n, int fieldIndex, CsvFieldType fieldType, boolean asc) {
+		checkFieldIndex(fieldIndex);
+		CsvTopHeap heap = new CsvTopHeap(n, fieldType, asc);
+		for (int i = 0; i < recordCount(); ++i) {
+			if (fieldType == CsvFieldType.STRING) {
+				heap.offer(i, getValue(i, fieldIndex), null);
 			} else {
-				if (v2 == null) {
-					res = 1;
-				} else {
-					Comparable r1 = convertValue(v1, fieldType);
-					Comparable r2 = convertValue(v2, fieldType);
-					res = r1.compareTo(r2);
-				}
+				heap.offer(i, isNullValue(i, fieldIndex), getPrimitiveValue(i, fieldIndex, fieldType), null);
 			}
-			return asc ? res : -res;
 		}
+		heap.sort();
+		int[] selection = new int[heap.size()];
+		for (int i = 0; i < selection.length; ++i) {
+			selection[i] = heap.getPosition(i);
+		}
+		navigate(new CsvOrder(selection, recordCount()), 0, selection.length);
+		return selection.length;
+	}
 
+	/**
+	 * Places the cursor before the first record whose sort fields are equal to
+	 * or come after the given values, according to the last sort (nulls first,
+	 * and "after" means smaller on descending order), so that {@link #next()}
+	 * reads it and then the following ones, like after
+	 * {@link #range(Object, Object)}. Fewer values than sort fields can be
+	 * given, comparing just the first fields.
+	 *
+	 * <p>
+	 * Values of integer, long and date fields may be numbers, dates or strings
+	 * in the file format.
+	 *
+	 * @return <code>false</code> if all the records come before the values, so
+	 *         that a following call to {@link #next()} returns
+	 *         <code>false</code>.
+	 */
+	public boolean seek(Object... values) {
+		Object[] key = toSearchKey(values);
+		int start = lowerBound(key);
+		navigate(sortOrder, start, sortOrder.size());
+		return start < sortOrder.size();
+	}
+
+	/**
+	 * Restricts the navigation to the records whose first sort field is in
+	 * [from, to), according to the last sort (on descending order,
+	 * <code>from</code> is the greatest value). The cursor is placed before the
+	 * first record of the range, so that {@link #next()} reads the range
+	 * records and then returns <code>false</code>. The restriction lasts until
+	 * the next call to {@link #seek(Object...)}, {@link #clearRange()} or a
+	 * new sort.
+	 *
+	 * @return the number of records in the range.
+	 */
+	public int range(Object from, Object to) {
+		int start = lowerBound(toSearchKey(from));
+		int end = Math.max(start, lowerBound(toSearchKey(to)));
+		navigate(sortOrder, start, end);
+		return end - start;
+	}
+
+	/**
+	 * Removes the restriction of {@link #range(Object, Object)}, allowing to
+	 * navigate up to the last record, or the selection of
+	 * {@link #top(int, String, CsvFieldType, boolean)}, going back to the
+	 * order of the last sort.
+	 */
+	public void clearRange() {
+		checkOrder();
+		if (order != null && order != sortOrder) {
+			int recordIndex = currentIndex;
+			order = sortOrder;
+			currentIndex = recordIndex;
+		}
+		if (order != null) {
+			rankEnd = order.size();
+		}
+	}
+
+	/**
+	 * Places the cursor before the record at rank <code>start</code> of the
+	 * order.
+	 */
+	private void navigate(CsvOrder order, int start, int end) {
+		this.order = order;
+		this.rank = start - 1;
+		this.rankEnd = end;
+		orderModCount = modCount;
+		currentIndex = -1;
+	}
+
+	/**
+	 * Drops the sort and the selection if records were added since they were
+	 * computed, as they don't rank the new records.
+	 */
+	private void checkOrder() {
+		if (order != null && orderModCount != modCount) {
+			sortFields = null;
+			sortOrder = null;
+			order = null;
+		}
+	}
+
+	/**
+	 * Reads the next record in the order of the last sort (or selection), or
+	 * of the file if the records were not sorted. After
+	 * {@link #moveTo(int)} or {@link #lookup(CsvIndex, Object...)}, goes on
+	 * from the record found.
+	 */
+	@Override
+	public boolean next() {
+		checkOrder();
+		if (order == null) {
+			return super.next();
+		}
+		if (currentIndex != -1 && (rank < 0 || rank >= order.size() || order.get(rank) != currentIndex)) {
+			// Moved by a position, out of the order
+			rank = order.rankOf(currentIndex);
+			if (rank == -1) {
+				// Not selected, going on in the order of the file
+				order = null;
+				return super.next();
+			}
+		}
+		if (rank >= rankEnd - 1) {
+			return false;
+		}
+		currentIndex = order.get(++rank);
+		return true;
+	}
+
+	/**
+	 * Converts the searched values to the representation compared by
+	 * {@link #compareValue(int, int, Object)}: a <code>Long</code> for integer,
+	 * long and date fields and a <code>String</code> for string fields.
+	 */
+	private Object[] toSearchKey(Object... values) {
+		if (sortFields == null || sortModCount != modCount) {
+			throw new IllegalStateException("The records must be sorted before being searched.");
+		}
+		if (values == null || values.length == 0 || values.length > sortFields.length) {
+			throw new IllegalArgumentException(String.format("Invalid search values. Expecting 1 to %d values.", sortFields.length));
+		}
+		Object[] key = new Object[values.length];
+		for (int i = 0; i < values.length; ++i) {
+			Object value = values[i];
+			CsvFieldType fieldType = sortFields[i].getFieldType();
+			if (value == null) {
+				continue;
+			}
+			if (fieldType == CsvFieldType.STRING) {
+				key[i] = value instanceof Date ? formatValue(value, fieldType) : value.toString();
+				continue;
+			}
+			if (value instanceof String) {
+				value = convertValue((String) value, fieldType);
+			}
+			if (!(value instanceof Number || value instanceof Date)) {
+				throw new IllegalArgumentException("Invalid search value for a " + fieldType + " field: '" + value + "'.");
+			}
+			key[i] = toLong(value);
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the rank of the first record that doesn't come before the key.
+	 */
+	private int lowerBound(Object[] key) {
+		int low = 0;
+		int high = sortOrder.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareRecord(sortOrder.get(middle), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int compareRecord(int recordIndex, Object[] key) {
+		for (int i = 0; i < key.length; ++i) {
+			int res = compareValue(recordIndex, i, key[i]);
+			if (res != 0) {
+				return sortFields[i].isAsc() ? res : -res;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compares the value of a sort field of a record with a search value,
+	 * ascending. Nulls come first.
+	 */
+	private int compareValue(int recordIndex, int sortFieldIndex, Object value) {
+		int fieldIndex = sortFieldIndexes[sortFieldIndex];
+		boolean recordNull = isNullValue(recordIndex, fieldIndex);
+		if (recordNull || value == null) {
+			return (recordNull ? 0 : 1) - (value == null ? 0 : 1);
+		}
+		CsvFieldType fieldType = sortFields[sortFieldIndex].getFieldType();
+		if (fieldType == CsvFieldType.STRING) {
+			return getValue(recordIndex, fieldIndex).compareTo((String) value);
+		}
+		return Long.compare(getLongValue(recordIndex, fieldIndex, fieldType), (Long) value);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static int compareNullsFirst(Comparable v1, Comparable v2) {
+		// Nulls come first
+		if (v1 == null) {
+			return v2 == null ? 0 : -1;
+		}
+		if (v2 == null) {
+			return 1;
+		}
+		return v1.compareTo(v2);
 	}
 
 }
@@ -0,0 +1,170 @@
+package com.googlecode.jcobs.csv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CsvColumn} of {@link CsvFieldType#STRING} values.
+ *
+ * <p>
+ * While the column has few distinct values, it's dictionary-encoded: each
+ * distinct value is stored only once and the rows keep just a
+ * <code>char</code> code for it (code 0 means <code>null</code>). When the
+ * number of distinct values exceeds {@link #MAX_DICTIONARY_SIZE}, the column
+ * switches to a plain {@code String[]}.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvStringColumn extends CsvColumn {
+
+	static final int MAX_DICTIONARY_SIZE = Character.MAX_VALUE;
+
+	private char[] codes = new char[INITIAL_CAPACITY];
+	private List<String> dictionary = new ArrayList<>();
+	private Map<String, Character> dictionaryCodes = new HashMap<>();
+	private String[] values;
+
+	CsvStringColumn() {
+		dictionary.add(null);
+	}
+
+	@Override
+	CsvFieldType getType() {
+		return CsvFieldType.STRING;
+	}
+
+	boolean isDictionaryEncoded() {
+		return values == null;
+	}
+
+	@Override
+	void add(String value) {
+		if (values == null) {
+			if (dictionaryCodes == null) {
+				rebuildDictionaryCodes();
+			}
+			Character code = value == null ? Character.valueOf((char) 0) : dictionaryCodes.get(value);
+			if (code == null && dictionary.size() <= MAX_DICTIONARY_SIZE) {
+				code = (char) dictionary.size();
+				dictionary.add(value);
+				dictionaryCodes.put(value, code);
+			}
+			if (code != null) {
+				if (size == codes.length) {
+					codes = Arrays.copyOf(codes, newCapacity(size));
+				}
+				codes[size++] = code;
+				return;
+			}
+			decode();
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, newCapacity(size));
+		}
+		values[size++] = value;
+	}
+
+	private void rebuildDictionaryCodes() {
+		dictionaryCodes = new HashMap<>();
+		for (int i = 1; i < dictionary.size(); ++i) {
+			dictionaryCodes.put(dictionary.get(i), (char) i);
+		}
+	}
+
+	/**
+	 * Gives up the dictionary, as the column has too many distinct values.
+	 */
+	private void decode() {
+		values = new String[newCapacity(size)];
+		for (int i = 0; i < size; ++i) {
+			values[i] = dictionary.get(codes[i]);
+		}
+		codes = null;
+		dictionary = null;
+		dictionaryCodes = null;
+	}
+
+	@Override
+	String getString(int row) {
+		return values == null ? dictionary.get(codes[row]) : values[row];
+	}
+
+	@Override
+	Object getValue(int row) {
+		return getString(row);
+	}
+
+	@Override
+	boolean isNull(int row) {
+		return values == null ? codes[row] == 0 : values[row] == null;
+	}
+
+	@Override
+	int compare(int row1, int row2) {
+		String v1 = getString(row1);
+		String v2 = getString(row2);
+		if (v1 == null || v2 == null) {
+			return (v1 == null ? 0 : 1) - (v2 == null ? 0 : 1);
+		}
+		return v1.compareTo(v2);
+	}
+
+	/**
+	 * Writes the dictionary and the codes, or the plain values.
+	 */
+	@Override
+	void write(DataOutput out) throws IOException {
+		out.writeBoolean(values == null);
+		if (values == null) {
+			out.writeInt(dictionary.size() - 1);
+			for (int i = 1; i < dictionary.size(); ++i) {
+				CsvSnapshot.writeString(out, dictionary.get(i));
+			}
+			for (int i = 0; i < size; ++i) {
+				out.writeChar(codes[i]);
+			}
+		} else {
+			for (int i = 0; i < size; ++i) {
+				CsvSnapshot.writeString(out, values[i]);
+			}
+		}
+	}
+
+	@Override
+	void read(CsvSnapshot.Input in, int count) throws IOException {
+		if (in.get() != 0) {
+			int dictionarySize = in.getInt();
+			dictionary = new ArrayList<>(dictionarySize + 1);
+			dictionary.add(null);
+			dictionary.addAll(in.getStrings(dictionarySize));
+			// Rebuilt on demand, if more values are added
+			dictionaryCodes = null;
+			codes = new char[count];
+			in.get(codes);
+			values = null;
+		} else {
+			values = in.getStrings(count).toArray(new String[count]);
+			codes = null;
+			dictionary = null;
+			dictionaryCodes = null;
+		}
+		size = count;
+	}
+
+	@Override
+	void trim() {
+		if (values == null) {
+			codes = Arrays.copyOf(codes, size);
+			dictionaryCodes = null;
+		} else {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.googlecode.jcobs.csv;
+
+import java.util.Arrays;
+
+/**
+ * Selects the first records of a scan in the order of one field, without
+ * sorting all of them: the best records seen so far are kept in a bounded
+ * binary heap whose root is the worst of them, so each record scanned costs
+ * one comparison, or <code>O(log n)</code> when it enters the heap.
+ *
+ * <p>
+ * The order is the same of {@link CsvSortableReader}: nulls come first (or
+ * last, on descending order) and records with the same value keep the order
+ * of the scan.
+ *
+ * @author Samuel Y. Deschamps
+ *
+ */
+class CsvTopHeap {
+
+	private static final int INITIAL_SIZE = 1024;
+
+	private final int capacity;
+	private final boolean asc;
+	private long[] keys;
+	private String[] stringKeys;
+	private boolean[] nulls;
+	/**
+	 * The position of each record in the scan.
+	 */
+	private int[] positions;
+	private Object[] records;
+	private int size;
+
+	/**
+	 * @param capacity
+	 *            the number of records to select. The heap grows up to it as
+	 *            records are offered.
+	 */
+	CsvTopHeap(int capacity, CsvFieldType fieldType, boolean asc) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Invalid number of records: " + capacity + ".");
+		}
+		this.capacity = capacity;
+		this.asc = asc;
+		int length = Math.min(capacity, INITIAL_SIZE);
+		this.keys = fieldType == CsvFieldType.STRING ? null : new long[length];
+		this.stringKeys = fieldType == CsvFieldType.STRING ? new String[length] : null;
+		this.nulls = new boolean[length];
+		this.positions = new int[length];
+		this.records = new Object[length];
+	}
+
+	/**
+	 * Offers the next record of the scan, with the value of an integer, long
+	 * or date field.
+	 */
+	void offer(int position, boolean isNull, long key, Object record) {
+		if (size == capacity) {
+			// Replaces the worst record kept, if this one comes before it
+			if (size == 0 || compare(isNull, key, null, position, 0) >= 0) {
+				return;
+			}
+			set(0, isNull, key, null, position, record);
+			siftDown(0, size);
+			return;
+		}
+		grow();
+		set(size, isNull, key, null, position, record);
+		siftUp(size++);
+	}
+
+	/**
+	 * Offers the next record of the scan, with the value of a string field.
+	 */
+	void offer(int position, String key, Object record) {
+		if (size == capacity) {
+			if (size == 0 || compare(key == null, 0L, key, position, 0) >= 0) {
+				return;
+			}
+			set(0, key == null, 0L, key, position, record);
+			siftDown(0, size);
+			return;
+		}
+		grow();
+		set(size, key == null, 0L, key, position, record);
+		siftUp(size++);
+	}
+
+	/**
+	 * Sorts the records kept, in place: the heap can't be used anymore.
+	 */
+	void sort() {
+		for (int end = size - 1; end > 0; --end) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	int getPosition(int i) {
+		return positions[i];
+	}
+
+	Object getRecord(int i) {
+		return records[i];
+	}
+
+	private void grow() {
+		if (size < positions.length) {
+			return;
+		}
+		int length = (int) Math.min(capacity, 2L * size);
+		if (keys != null) {
+			keys = Arrays.copyOf(keys, length);
+		} else {
+			stringKeys = Arrays.copyOf(stringKeys, length);
+		}
+		nulls = Arrays.copyOf(nulls, length);
+		positions = Arrays.copyOf(positions, length);
+		records = Arrays.copyOf(records, length);
+	}
+
+	private void set(int i, boolean isNull, long key, String stringKey, int position, Object record) {
+		nulls[i] = isNull;
+		if (keys != null) {
+			keys[i] = key;
+		} else {
+			stringKeys[i] = stringKey;
+		}
+		positions[i] = position;
+		records[i] = record;
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (compare(parent, i) >= 0) {
+				return;
+			}
+			swap(parent, i);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i, int end) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= end) {
+				return;
+			}
+			if (child + 1 < end && compare(child + 1, child) > 0) {
+				++child;
+			}
+			if (compare(i, child) >= 0) {
+				return;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private int compare(int i, int j) {
+		return compare(nulls[i], keys != null ? keys[i] : 0L, stringKeys != null ? stringKeys[i] : null, positions[i], j);
+	}
+
+	/**
+	 * Compares a record with the record kept at <code>j</code>, in the order
+	 * of the result.
+	 */
+	private int compare(boolean isNull, long key, String stringKey, int position, int j) {
+		int res;
+		if (isNull || nulls[j]) {
+			res = (isNull ? 0 : 1) - (nulls[j] ? 0 : 1);
+		} else if (keys != null) {
+			res = Long.compare(key, keys[j]);
+		} else {
+			res = stringKey.compareTo(stringKeys[j]);
+		}
+		if (res != 0) {
+			return asc ? res : -res;
+		}
+		return Integer.compare(position, positions[j]);
+	}
+
+	private void swap(int i, int j) {
+		boolean isNull = nulls[i];
+		nulls[i] = nulls[j];
+		nulls[j] = isNull;
+		if (keys != null) {
+			long key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+		} else {
+			String key = stringKeys[i];
+			stringKeys[i] = stringKeys[j];
+			stringKeys[j] = key;
+		}
+		int position = positions[i];
+		positions[i] = positions[j];
+		positions[j] = position;
+		Object record = records[i];
+		records[i] = records[j];
+		records[j] = record;
+	}
+
+}